@@ -0,0 +1,455 @@
+"""Concurrent load driver for the studio service.
+
+Sends mixed traffic to every controller for a fixed duration and reports, per
+scenario, throughput, p50/p99/max latency and error rate. Webcam sessions are
+driven over the real STOMP WebSocket, acking every frame like the web client,
+and report delivered frames/sec and frame age.
+
+Only the standard library is used. Start the service with the stub scripts
+(see README.md), then e.g.:
+
+    python3 loadtest/driver.py --duration 60 --concurrency 32
+    python3 loadtest/driver.py --scenarios generate,tryon --concurrency 64 --json out.json
+"""
+import argparse
+import base64
+import http.server
+import json
+import os
+import random
+import socket
+import struct
+import threading
+import time
+import urllib.error
+import urllib.parse
+import urllib.request
+import uuid
+import zlib
+from concurrent.futures import ThreadPoolExecutor
+
+OCCASIONS = ["wedding", "office meeting", "beach party", "job interview", "brunch", "concert"]
+GENDERS = ["male", "female"]
+STYLES = ["casual", "formal", "streetwear", "vintage"]
+
+
+def png(seed, size=96):
+    """A unique solid-colour PNG; distinct seeds defeat the content-addressed caches."""
+    rng = random.Random(seed)
+    pixel = bytes(rng.randrange(256) for _ in range(3))
+    raw = b"".join(b"\x00" + pixel * size for _ in range(size))
+
+    def chunk(kind, data):
+        return struct.pack(">I", len(data)) + kind + data + struct.pack(">I", zlib.crc32(kind + data) & 0xFFFFFFFF)
+
+    return (b"\x89PNG\r\n\x1a\n" + chunk(b"IHDR", struct.pack(">IIBBBBB", size, size, 8, 2, 0, 0, 0))
+            + chunk(b"IDAT", zlib.compress(raw)) + chunk(b"IEND", b""))
+
+
+class ImageServer:
+    """Serves /img/<anything>.png so remove-background has URLs to download."""
+
+    def __init__(self):
+        class Handler(http.server.BaseHTTPRequestHandler):
+            def do_GET(self):
+                body = png(self.path)
+                self.send_response(200)
+                self.send_header("Content-Type", "image/png")
+                self.send_header("Content-Length", str(len(body)))
+                self.end_headers()
+                self.wfile.write(body)
+
+            def log_message(self, *args):
+                pass
+
+        self.server = http.server.ThreadingHTTPServer(("127.0.0.1", 0), Handler)
+        self.server.daemon_threads = True
+        threading.Thread(target=self.server.serve_forever, daemon=True).start()
+
+    def url(self):
+        return f"http://127.0.0.1:{self.server.server_address[1]}/img/{uuid.uuid4().hex}.png"
+
+
+class Client:
+    def __init__(self, base_url, timeout):
+        self.base_url = base_url.rstrip("/")
+        self.timeout = timeout
+
+    def request(self, method, path, body=None, headers=None):
+        req = urllib.request.Request(self.base_url + path, data=body, method=method, headers=headers or {})
+        try:
+            with urllib.request.urlopen(req, timeout=self.timeout) as response:
+                return response.status, response.read()
+        except urllib.error.HTTPError as e:
+            return e.code, e.read()
+
+    def get(self, path, **params):
+        return self.request("GET", path + ("?" + urllib.parse.urlencode(params) if params else ""))
+
+    def post_json(self, path, payload):
+        return self.request("POST", path, json.dumps(payload).encode(), {"Content-Type": "application/json"})
+
+    def post_form(self, path, **params):
+        return self.request("POST", path, urllib.parse.urlencode(params).encode(),
+                            {"Content-Type": "application/x-www-form-urlencoded"})
+
+    def post_multipart(self, path, fields, files):
+        boundary = uuid.uuid4().hex
+        parts = []
+        for name, value in fields:
+            parts.append(f'--{boundary}\r\nContent-Disposition: form-data; name="{name}"\r\n\r\n{value}\r\n'.encode())
+        for name, filename, content in files:
+            parts.append(f'--{boundary}\r\nContent-Disposition: form-data; name="{name}"; filename="{filename}"\r\n'
+                         f'Content-Type: image/png\r\n\r\n'.encode() + content + b"\r\n")
+        parts.append(f"--{boundary}--\r\n".encode())
+        return self.request("POST", path, b"".join(parts), {"Content-Type": f"multipart/form-data; boundary={boundary}"})
+
+
+def unique_prompt():
+    return f"loadtest {random.choice(STYLES)} jacket {uuid.uuid4().hex[:12]}"
+
+
+def ok(status, body=b""):
+    if 200 <= status < 300:
+        return None
+    return f"HTTP {status}: {body[:120].decode('utf-8', 'replace')}"
+
+
+def scenario_generate(c, ctx):
+    return ok(*c.get("/api/designs/generate", prompt=unique_prompt(), style=random.choice(STYLES)))
+
+
+def scenario_generate_stream(c, ctx):
+    status, body = c.get("/api/designs/generate/stream", prompt=unique_prompt())
+    if status != 200:
+        return ok(status, body)
+    text = body.decode("utf-8", "replace")
+    return None if "COMPLETE:" in text else "stream ended without COMPLETE: " + text[-120:]
+
+
+def scenario_jobs(c, ctx):
+    status, body = c.post_form("/api/designs/jobs", prompt=unique_prompt())
+    if status != 202:
+        return ok(status, body) or f"HTTP {status}"
+    job_id = json.loads(body)["id"]
+    deadline = time.time() + c.timeout
+    while time.time() < deadline:
+        status, body = c.get(f"/api/designs/jobs/{job_id}")
+        if status != 200:
+            return ok(status, body)
+        state = json.loads(body)["state"]
+        if state == "SUCCEEDED":
+            return None
+        if state == "FAILED":
+            return "job failed: " + str(json.loads(body).get("error"))
+        time.sleep(0.05)
+    return "job timed out"
+
+
+def scenario_designs_page(c, ctx):
+    return ok(*c.get("/api/designs/page", size=50))
+
+
+def scenario_designs_search(c, ctx):
+    return ok(*c.get("/api/designs/search", style=random.choice(STYLES), gender=random.choice(GENDERS), size=50))
+
+
+def scenario_remove_background(c, ctx):
+    status, body = c.post_json("/api/image/remove-background", {"imageUrl": ctx.images.url()})
+    return ok(status, body)
+
+
+def scenario_remove_background_batch(c, ctx):
+    urls = [ctx.images.url() for _ in range(8)]
+    status, body = c.post_json("/api/image/remove-background/batch", {"imageUrls": urls})
+    if status != 200:
+        return ok(status, body)
+    results = [json.loads(line) for line in body.splitlines() if line.strip()]
+    failed = [r for r in results if "error" in r]
+    if len(results) != len(urls) or failed:
+        return f"{len(results)} results, {len(failed)} failed"
+    return None
+
+
+def scenario_outfit(c, ctx):
+    return ok(*c.get("/api/outfit/suggest", occasion=random.choice(OCCASIONS), gender=random.choice(GENDERS)))
+
+
+def scenario_shirt_compare(c, ctx):
+    return ok(*c.post_multipart("/api/shirts/compare",
+                                [("platform1", "Amazon"), ("price1", "799"), ("platform2", "Myntra"), ("price2", "999")],
+                                [("image1", "a.png", png(uuid.uuid4().hex)), ("image2", "b.png", png(uuid.uuid4().hex))]))
+
+
+def scenario_shirt_rank(c, ctx):
+    return ok(*c.post_multipart("/api/shirts/rank", [("prices", str(500 + i * 100)) for i in range(4)],
+                                [("images", f"{i}.png", png(uuid.uuid4().hex)) for i in range(4)]))
+
+
+def scenario_catalog(c, ctx):
+    status, body = c.post_multipart("/api/shirts/catalog", [("name", "loadtest shirt"), ("price", "499")],
+                                    [("image", "shirt.png", png(uuid.uuid4().hex))])
+    if ok(status, body):
+        return ok(status, body)
+    return ok(*c.get("/api/shirts/catalog/similar", color="#%06x" % random.randrange(1 << 24), k=10))
+
+
+def scenario_tryon(c, ctx):
+    return ok(*c.post_multipart("/api/virtual-tryon/try-on", [],
+                                [("userImage", "user.png", png(uuid.uuid4().hex, 256)),
+                                 ("clothImage", "cloth.png", png(uuid.uuid4().hex, 128))]))
+
+
+def scenario_users(c, ctx):
+    name = "lt_" + uuid.uuid4().hex[:16]
+    status, body = c.post_json("/api/users/signup", {"username": name, "email": name + "@example.com",
+                                                     "password": "secret"})
+    if ok(status, body):
+        return ok(status, body)
+    status, body = c.post_form("/api/users/login", username=name, password="secret")
+    if ok(status, body):
+        return ok(status, body)
+    token = json.loads(body)["token"]
+    return ok(*c.request("GET", "/api/users/me", headers={"Authorization": "Bearer " + token}))
+
+
+SCENARIOS = {
+    "generate": scenario_generate,
+    "generate-stream": scenario_generate_stream,
+    "jobs": scenario_jobs,
+    "designs-page": scenario_designs_page,
+    "designs-search": scenario_designs_search,
+    "remove-background": scenario_remove_background,
+    "remove-background-batch": scenario_remove_background_batch,
+    "outfit": scenario_outfit,
+    "shirt-compare": scenario_shirt_compare,
+    "shirt-rank": scenario_shirt_rank,
+    "catalog": scenario_catalog,
+    "tryon": scenario_tryon,
+    "users": scenario_users,
+}
+
+
+class Stats:
+    def __init__(self):
+        self.lock = threading.Lock()
+        self.latencies = {}
+        self.errors = {}
+        self.samples = {}
+
+    def record(self, name, seconds, error):
+        with self.lock:
+            self.latencies.setdefault(name, []).append(seconds)
+            if error:
+                self.errors[name] = self.errors.get(name, 0) + 1
+                self.samples.setdefault(name, error)
+
+
+def percentile(values, p):
+    if not values:
+        return 0.0
+    ordered = sorted(values)
+    return ordered[min(len(ordered) - 1, int(round(p / 100.0 * (len(ordered) - 1))))]
+
+
+class Stomp:
+    """Minimal STOMP 1.2 over a raw (SockJS) WebSocket, enough to subscribe and ack frames."""
+
+    def __init__(self, base_url):
+        parsed = urllib.parse.urlparse(base_url)
+        self.sock = socket.create_connection((parsed.hostname, parsed.port or 80), timeout=10)
+        key = base64.b64encode(os.urandom(16)).decode()
+        self.sock.sendall((f"GET /virtual-try-on-websocket/websocket HTTP/1.1\r\nHost: {parsed.netloc}\r\n"
+                           f"Upgrade: websocket\r\nConnection: Upgrade\r\nSec-WebSocket-Key: {key}\r\n"
+                           f"Sec-WebSocket-Version: 13\r\nSec-WebSocket-Protocol: v12.stomp\r\n\r\n").encode())
+        self.buffer = b""
+        while b"\r\n\r\n" not in self.buffer:
+            self.buffer += self._recv()
+        head, self.buffer = self.buffer.split(b"\r\n\r\n", 1)
+        if b" 101 " not in head.split(b"\r\n")[0]:
+            raise IOError("WebSocket upgrade failed: " + head.split(b"\r\n")[0].decode())
+        self.send_frame("CONNECT", {"accept-version": "1.2", "host": parsed.hostname})
+        command, _, _ = self.read_frame()
+        if command != "CONNECTED":
+            raise IOError("STOMP connect failed: " + command)
+
+    def _recv(self):
+        data = self.sock.recv(65536)
+        if not data:
+            raise IOError("connection closed")
+        return data
+
+    def _read(self, size):
+        while len(self.buffer) < size:
+            self.buffer += self._recv()
+        data, self.buffer = self.buffer[:size], self.buffer[size:]
+        return data
+
+    def send_frame(self, command, headers, body=""):
+        text = command + "\n" + "".join(f"{k}:{v}\n" for k, v in headers.items()) + "\n" + body + "\x00"
+        payload = text.encode()
+        mask = os.urandom(4)
+        length = len(payload)
+        header = bytes([0x81]) + (bytes([0x80 | length]) if length < 126 else bytes([0x80 | 126]) + struct.pack(">H", length))
+        self.sock.sendall(header + mask + bytes(b ^ mask[i % 4] for i, b in enumerate(payload)))
+
+    def read_frame(self):
+        message = b""
+        while True:
+            first, second = self._read(2)
+            length = second & 0x7F
+            if length == 126:
+                length = struct.unpack(">H", self._read(2))[0]
+            elif length == 127:
+                length = struct.unpack(">Q", self._read(8))[0]
+            payload = self._read(length)
+            opcode = first & 0x0F
+            if opcode == 8:
+                raise IOError("server closed the WebSocket")
+            if opcode not in (0, 1, 2):
+                continue  # pings
+            # Large messages arrive as a text frame plus continuation frames until FIN
+            message += payload
+            if not first & 0x80:
+                continue
+            payload, message = message, b""
+            if payload in (b"\n", b""):
+                continue  # STOMP heart-beats
+            text = payload.decode("utf-8").rstrip("\x00")
+            head, _, body = text.partition("\n\n")
+            lines = head.lstrip("\n").split("\n")
+            headers = dict(line.split(":", 1) for line in lines[1:] if ":" in line)
+            return lines[0], headers, body
+
+    def close(self):
+        try:
+            self.sock.close()
+        except OSError:
+            pass
+
+
+def run_cam_session(client, base_url, seconds, results):
+    started = time.time()
+    status, body = client.post_multipart("/api/virtual-try-on/upload-cloth", [],
+                                         [("file", "cloth.png", png(uuid.uuid4().hex, 128))])
+    if status != 200:
+        results.append({"error": ok(status, body)})
+        return
+    session = json.loads(body)
+    session_id = session["sessionId"]
+    startup = time.time() - started
+    frames, ages, first_frame = 0, [], None
+    stomp = None
+    try:
+        stomp = Stomp(base_url)
+        stomp.send_frame("SUBSCRIBE", {"id": "sub-0", "destination": session["destination"]})
+        deadline = time.time() + seconds
+        while time.time() < deadline:
+            command, headers, frame_body = stomp.read_frame()
+            if command != "MESSAGE":
+                continue
+            ts = json.loads(frame_body)["ts"]
+            now = time.time()
+            first_frame = first_frame or now
+            frames += 1
+            ages.append(now - ts / 1000.0)
+            stomp.send_frame("SEND", {"destination": f"/app/video-feed/{session_id}/ack"}, str(ts))
+        elapsed = time.time() - (first_frame or time.time())
+        results.append({"startup": startup, "frames": frames, "fps": frames / elapsed if elapsed > 0 else 0.0,
+                        "ages": ages})
+    except (IOError, OSError, ValueError) as e:
+        results.append({"error": str(e), "frames": frames})
+    finally:
+        if stomp:
+            stomp.close()
+        client.post_form("/api/virtual-try-on/stop", sessionId=session_id)
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Studio load driver")
+    parser.add_argument("--base-url", default="http://localhost:8080")
+    parser.add_argument("--duration", type=float, default=30, help="seconds of HTTP traffic")
+    parser.add_argument("--concurrency", type=int, default=16, help="concurrent HTTP clients")
+    parser.add_argument("--scenarios", default=",".join(SCENARIOS), help="comma-separated subset of scenarios")
+    parser.add_argument("--cam-sessions", type=int, default=4, help="concurrent webcam sessions (0 to skip)")
+    parser.add_argument("--cam-seconds", type=float, default=15)
+    parser.add_argument("--timeout", type=float, default=120, help="per-request timeout in seconds")
+    parser.add_argument("--json", help="also write the report to this file")
+    args = parser.parse_args()
+
+    names = [name.strip() for name in args.scenarios.split(",") if name.strip()]
+    unknown = [name for name in names if name not in SCENARIOS]
+    if unknown:
+        parser.error(f"unknown scenarios {unknown}; choose from {list(SCENARIOS)}")
+
+    client = Client(args.base_url, args.timeout)
+    ctx = argparse.Namespace(images=ImageServer())
+    stats = Stats()
+    stop_at = time.time() + args.duration
+
+    def worker(index):
+        i = index
+        while time.time() < stop_at:
+            name = names[i % len(names)]
+            i += 1
+            started = time.perf_counter()
+            try:
+                error = SCENARIOS[name](client, ctx)
+            except Exception as e:  # connection resets, timeouts, bad JSON
+                error = f"{type(e).__name__}: {e}"
+            stats.record(name, time.perf_counter() - started, error)
+
+    cam_results = []
+    cam_threads = [threading.Thread(target=run_cam_session, args=(client, args.base_url, args.cam_seconds, cam_results))
+                   for _ in range(args.cam_sessions)]
+    for thread in cam_threads:
+        thread.start()
+    wall_start = time.time()
+    with ThreadPoolExecutor(max_workers=args.concurrency) as pool:
+        list(pool.map(worker, range(args.concurrency)))
+    for thread in cam_threads:
+        thread.join()
+    wall = time.time() - wall_start
+
+    report = {"durationSeconds": wall, "concurrency": args.concurrency, "scenarios": {}}
+    print(f"\n{'scenario':<26}{'requests':>9}{'req/s':>9}{'errors':>8}{'err%':>7}{'p50 ms':>10}{'p99 ms':>10}{'max ms':>10}")
+    total, total_errors = 0, 0
+    for name in names:
+        latencies = stats.latencies.get(name, [])
+        errors = stats.errors.get(name, 0)
+        total += len(latencies)
+        total_errors += errors
+        row = {"requests": len(latencies), "throughput": len(latencies) / wall, "errors": errors,
+               "errorRate": errors / len(latencies) if latencies else 0.0,
+               "p50Ms": percentile(latencies, 50) * 1000, "p99Ms": percentile(latencies, 99) * 1000,
+               "maxMs": max(latencies, default=0) * 1000, "sampleError": stats.samples.get(name)}
+        report["scenarios"][name] = row
+        print(f"{name:<26}{row['requests']:>9}{row['throughput']:>9.1f}{errors:>8}{row['errorRate'] * 100:>6.1f}%"
+              f"{row['p50Ms']:>10.1f}{row['p99Ms']:>10.1f}{row['maxMs']:>10.1f}")
+    print(f"{'total':<26}{total:>9}{total / wall:>9.1f}{total_errors:>8}"
+          f"{(total_errors / total * 100 if total else 0):>6.1f}%")
+    for name, row in report["scenarios"].items():
+        if row["sampleError"]:
+            print(f"  {name}: {row['sampleError']}")
+
+    if cam_results:
+        good = [r for r in cam_results if "error" not in r]
+        ages = [age for r in good for age in r["ages"]]
+        report["cam"] = {"sessions": len(cam_results), "failed": len(cam_results) - len(good),
+                         "framesPerSecond": [round(r["fps"], 1) for r in good],
+                         "startupMs": [round(r["startup"] * 1000, 1) for r in good],
+                         "frameAgeP50Ms": percentile(ages, 50) * 1000, "frameAgeP99Ms": percentile(ages, 99) * 1000,
+                         "errors": [r["error"] for r in cam_results if "error" in r]}
+        cam = report["cam"]
+        print(f"\ncam sessions: {cam['sessions']} ({cam['failed']} failed), fps per session {cam['framesPerSecond']}, "
+              f"frame age p50 {cam['frameAgeP50Ms']:.1f} ms / p99 {cam['frameAgeP99Ms']:.1f} ms")
+        for error in cam["errors"]:
+            print(f"  cam: {error}")
+
+    if args.json:
+        with open(args.json, "w") as f:
+            json.dump(report, f, indent=2)
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,72 @@
+"""Shared helpers for the load-test stand-ins of the Python scripts.
+
+The stubs speak exactly the same stdout protocol as the real scripts but only
+sleep instead of running models, so the service can be load-tested on a plain
+Linux box with no GPU, OpenCV or model weights. Only the standard library is used.
+
+Delays are read from the environment of the Spring Boot process, which the
+stubs inherit:
+
+  STUB_DELAY_MS            default delay of every stub (default 50)
+  STUB_<NAME>_DELAY_MS     per-stub override, e.g. STUB_GENERATE_DELAY_MS
+  STUB_JITTER_MS           uniform +/- jitter added to each delay (default 0)
+  STUB_SEED                seed for the jitter, so runs are repeatable (default 42)
+"""
+import os
+import random
+import struct
+import sys
+import time
+import zlib
+
+STUB_DIR = os.path.dirname(os.path.abspath(__file__))
+
+_random = random.Random(int(os.environ.get("STUB_SEED", "42")) ^ os.getpid())
+
+
+def delay_ms(name, default=None):
+    value = os.environ.get(f"STUB_{name.upper()}_DELAY_MS")
+    if value is None:
+        value = os.environ.get("STUB_DELAY_MS", "50" if default is None else str(default))
+    base = max(0, int(value))
+    jitter = int(os.environ.get("STUB_JITTER_MS", "0"))
+    if jitter > 0:
+        base = max(0, base + _random.randint(-jitter, jitter))
+    return base
+
+
+def sleep(name, fraction=1.0, default=None):
+    time.sleep(delay_ms(name, default) * fraction / 1000.0)
+
+
+def png_bytes(seed_text, size=64):
+    """A small solid-colour PNG whose colour is derived from seed_text."""
+    digest = zlib.crc32(seed_text.encode("utf-8"))
+    pixel = bytes(((digest >> 16) & 0xFF, (digest >> 8) & 0xFF, digest & 0xFF))
+    raw = b"".join(b"\x00" + pixel * size for _ in range(size))
+
+    def chunk(kind, data):
+        return (struct.pack(">I", len(data)) + kind + data
+                + struct.pack(">I", zlib.crc32(kind + data) & 0xFFFFFFFF))
+
+    return (b"\x89PNG\r\n\x1a\n"
+            + chunk(b"IHDR", struct.pack(">IIBBBBB", size, size, 8, 2, 0, 0, 0))
+            + chunk(b"IDAT", zlib.compress(raw))
+            + chunk(b"IEND", b""))
+
+
+def write_png(path, seed_text):
+    directory = os.path.dirname(os.path.abspath(path))
+    os.makedirs(directory, exist_ok=True)
+    with open(path, "wb") as f:
+        f.write(png_bytes(seed_text))
+    return os.path.abspath(path)
+
+
+def frame_jpeg():
+    with open(os.path.join(STUB_DIR, "frame.jpg"), "rb") as f:
+        return f.read()
+
+
+def log(message):
+    print(message, file=sys.stderr, flush=True)
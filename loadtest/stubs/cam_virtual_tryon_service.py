@@ -0,0 +1,62 @@
+import argparse
+import os
+import struct
+import sys
+import time
+
+from _stub import frame_jpeg, log
+
+# Stand-in for cam_virtual_tryon_service.py: the same binary frame stream on
+# stdout (big-endian type byte, capture time in epoch microseconds, payload
+# length, payload) with a fixed JPEG instead of webcam frames. Runs until the
+# service destroys it.
+#
+#   STUB_CAM_FPS          frames per second (default 30)
+#   STUB_CAM_FRAME_BYTES  pad each JPEG to this size to mimic real frames (default 40000)
+
+FRAME_TYPE_JPEG = 1
+FRAME_TYPE_ERROR = 2
+FRAME_TYPE_STATUS = 3
+FRAME_HEADER = struct.Struct('>BqI')
+
+frame_out = sys.stdout.buffer
+
+
+def send_frame(frame_type, payload):
+    frame_out.write(FRAME_HEADER.pack(frame_type, int(time.time() * 1_000_000), len(payload)))
+    frame_out.write(payload)
+    frame_out.flush()
+
+
+def main():
+    parser = argparse.ArgumentParser()
+    source = parser.add_mutually_exclusive_group(required=True)
+    source.add_argument('--cloth-image', type=str)
+    source.add_argument('--cloth-asset', type=str)
+    args = parser.parse_args()
+
+    cloth = args.cloth_asset or args.cloth_image
+    if not os.path.exists(cloth):
+        send_frame(FRAME_TYPE_ERROR, b"Could not read cloth image")
+        sys.exit(1)
+
+    fps = float(os.environ.get("STUB_CAM_FPS", "30"))
+    jpeg = frame_jpeg()
+    # Decoders stop at the EOI marker, so trailing padding keeps the JPEG valid
+    padding = max(0, int(os.environ.get("STUB_CAM_FRAME_BYTES", "40000")) - len(jpeg))
+    payload = jpeg + bytes(padding)
+
+    send_frame(FRAME_TYPE_STATUS, b"started")
+    interval = 1.0 / fps
+    next_frame = time.monotonic()
+    try:
+        while True:
+            send_frame(FRAME_TYPE_JPEG, payload)
+            next_frame += interval
+            time.sleep(max(0.0, next_frame - time.monotonic()))
+    except (BrokenPipeError, KeyboardInterrupt):
+        log("stopping")
+
+
+if __name__ == "__main__":
+    main()
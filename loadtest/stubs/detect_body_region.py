@@ -0,0 +1,39 @@
+import json
+import struct
+import sys
+
+from _stub import sleep
+
+# Stand-in for detect_body_region.py: reads '>II' (width, height) + BGR pixels
+# from stdin and answers {"rect": [x1, y1, x2, y2]} per request, placing the
+# torso at the same fixed proportions ProportionalBodyRegionDetector uses.
+REQUEST_HEADER = struct.Struct('>II')
+
+
+def read_exactly(stream, size):
+    data = bytearray()
+    while len(data) < size:
+        chunk = stream.read(size - len(data))
+        if not chunk:
+            return None
+        data.extend(chunk)
+    return bytes(data)
+
+
+def main():
+    requests = sys.stdin.buffer
+    while True:
+        header = read_exactly(requests, REQUEST_HEADER.size)
+        if header is None:
+            break
+        width, height = REQUEST_HEADER.unpack(header)
+        if read_exactly(requests, width * height * 3) is None:
+            break
+        sleep("detect", default=5)
+        rect = [int(width * 0.2), int(height * 0.3), int(width * 0.8), int(height * 0.9)]
+        sys.stdout.write(json.dumps({"rect": rect}) + "\n")
+        sys.stdout.flush()
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,30 @@
+import os
+import sys
+import time
+
+from _stub import sleep, write_png
+
+# Stand-in for generate_clothing.py: PROGRESS:<n> lines, then FILE:<absolute path>.
+# Usage: generate_clothing.py "<prompt>" <style> <gender> <output_dir> [seed]
+
+
+def main():
+    if len(sys.argv) < 5:
+        print("ERROR: Usage: generate_clothing.py <prompt> <style> <gender> <output_dir> [seed]", flush=True)
+        sys.exit(1)
+    prompt = sys.argv[1].strip('"')
+    style, gender, output_dir = sys.argv[2], sys.argv[3], sys.argv[4]
+    seed = sys.argv[5] if len(sys.argv) > 5 else "0"
+
+    for percent, share in ((10, 0.1), (30, 0.2), (70, 0.6), (95, 0.1)):
+        sleep("generate", share)
+        print(f"PROGRESS:{percent}", flush=True)
+
+    filename = f"design_{int(time.time() * 1000)}_{os.getpid()}.png"
+    path = write_png(os.path.join(output_dir, filename), f"{prompt}|{style}|{gender}|{seed}")
+    print(f"FILE:{path}", flush=True)
+    print("PROGRESS:100", flush=True)
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,103 @@
+import argparse
+import json
+import os
+import queue
+import sys
+import threading
+import time
+
+from _stub import sleep, write_png
+
+# Stand-in for generate_clothing_worker.py. Same framing: a {"event": "ready"}
+# frame once "loaded" (STUB_WORKER_LOAD_DELAY_MS), then per request JSON frames
+# {"id", "event": "progress"|"result"|"error", "value"} on stdout. Requests are
+# batched like the real worker; one batch costs STUB_WORKER_DELAY_MS however
+# many requests it holds, which is what makes batching pay off on a GPU.
+# {"cancel": id} lines withdraw a request like they do for the real worker.
+
+frame_out = sys.stdout
+write_lock = threading.Lock()
+cancelled = set()
+
+
+def send(frame):
+    with write_lock:
+        frame_out.write(json.dumps(frame) + "\n")
+        frame_out.flush()
+
+
+def read_requests(requests):
+    for line in sys.stdin:
+        line = line.strip()
+        if not line:
+            continue
+        request = json.loads(line)
+        if "cancel" in request:
+            cancelled.add(request["cancel"])
+        else:
+            requests.put(request)
+    requests.put(None)
+
+
+def take(requests, timeout=None):
+    while True:
+        request = requests.get(timeout=timeout)
+        if request is None or request["id"] not in cancelled:
+            return request
+        cancelled.discard(request["id"])
+
+
+def next_batch(requests, window_seconds, max_batch_size):
+    first = take(requests)
+    if first is None:
+        return None
+    batch = [first]
+    deadline = time.time() + window_seconds
+    while len(batch) < max_batch_size:
+        remaining = deadline - time.time()
+        if remaining <= 0:
+            break
+        try:
+            request = take(requests, timeout=remaining)
+        except queue.Empty:
+            break
+        if request is None:
+            requests.put(None)
+            break
+        batch.append(request)
+    return batch
+
+
+def main():
+    parser = argparse.ArgumentParser(description='Stub diffusion worker')
+    parser.add_argument('--batch-window-ms', type=int, default=250)
+    parser.add_argument('--max-batch-size', type=int, default=4)
+    parser.add_argument('--steps', type=int, default=25)
+    args = parser.parse_args()
+
+    sleep("worker_load", default=0)
+    send({"event": "ready"})
+
+    requests = queue.Queue()
+    threading.Thread(target=read_requests, args=(requests,), daemon=True).start()
+    while True:
+        batch = next_batch(requests, args.batch_window_ms / 1000.0, args.max_batch_size)
+        if batch is None:
+            break
+        for percent, share in ((10, 0.0), (30, 0.2), (70, 0.7), (95, 0.1)):
+            sleep("worker", share)
+            for request in batch:
+                send({"id": request["id"], "event": "progress", "value": str(percent)})
+        for request in batch:
+            if request["id"] in cancelled:
+                cancelled.discard(request["id"])
+                continue
+            filename = f"design_{int(time.time() * 1000)}_{request['id'][:8]}.png"
+            seed_text = f"{request['prompt']}|{request['style']}|{request['gender']}|{request.get('seed')}"
+            path = write_png(os.path.join(request["output_dir"], filename), seed_text)
+            send({"id": request["id"], "event": "progress", "value": "100"})
+            send({"id": request["id"], "event": "result", "value": path})
+
+
+if __name__ == "__main__":
+    main()
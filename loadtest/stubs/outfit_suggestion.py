@@ -0,0 +1,33 @@
+import json
+import sys
+
+from _stub import sleep
+
+# Stand-in for outfit_suggestion.py: one JSON line with status and outfitSuggestion.
+
+OUTFITS = [
+    "Navy blazer with chinos and loafers",
+    "Linen shirt with tailored shorts",
+    "Wrap dress with block heels",
+    "Denim jacket over a plain tee with sneakers",
+]
+
+
+def main():
+    if len(sys.argv) < 3:
+        sys.stdout.write(json.dumps({"status": "error", "message": "Please provide occasion and gender"}) + "\n")
+        sys.exit(1)
+    occasion, gender = sys.argv[1], sys.argv[2]
+    sleep("outfit")
+    suggestion = OUTFITS[sum(map(ord, occasion + gender)) % len(OUTFITS)]
+    sys.stdout.write(json.dumps({
+        "status": "success",
+        "outfitSuggestion": suggestion,
+        "gender": gender,
+        "message": "Prediction successful"
+    }) + "\n")
+    sys.stdout.flush()
+
+
+if __name__ == "__main__":
+    main()
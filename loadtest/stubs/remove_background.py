@@ -0,0 +1,52 @@
+import json
+import os
+import sys
+
+from _stub import sleep, write_png
+
+# Stand-in for remove_background.py.
+# Single mode: remove_background.py <input> <output> prints SUCCESS:<output>.
+# Batch mode (--batch): JSON {id, input, output} per stdin line, one
+# {id, status: "ok", output} line back per request; the input file is deleted.
+
+
+def remove_background(input_path, output_path):
+    sleep("remove_background")
+    with open(input_path, "rb") as f:
+        seed_text = str(len(f.read()))
+    write_png(output_path, seed_text)
+
+
+def batch():
+    for line in sys.stdin:
+        line = line.strip()
+        if not line:
+            continue
+        request = json.loads(line)
+        try:
+            remove_background(request["input"], request["output"])
+            result = {"id": request["id"], "status": "ok", "output": request["output"]}
+        except Exception as e:
+            result = {"id": request["id"], "status": "error", "error": str(e)}
+        finally:
+            try:
+                os.remove(request["input"])
+            except OSError:
+                pass
+        sys.stdout.write(json.dumps(result) + "\n")
+        sys.stdout.flush()
+
+
+if __name__ == "__main__":
+    if len(sys.argv) == 2 and sys.argv[1] == "--batch":
+        batch()
+        sys.exit(0)
+    if len(sys.argv) != 3:
+        print("ERROR:Usage: python remove_background.py <input_path> <output_path> | --batch")
+        sys.exit(1)
+    try:
+        remove_background(sys.argv[1], sys.argv[2])
+        print(f"SUCCESS:{sys.argv[2]}")
+    except Exception as e:
+        print(f"ERROR:{str(e)}")
+        sys.exit(1)
@@ -0,0 +1,45 @@
+import argparse
+import json
+
+from _stub import sleep
+
+# Stand-in for shirt_recommender.py: same arguments, same
+# {status, recommendation, weights_used} JSON. Picks the cheaper shirt.
+
+
+def main():
+    parser = argparse.ArgumentParser()
+    for i in (1, 2):
+        parser.add_argument(f"--image{i}")
+        parser.add_argument(f"--platform{i}", default="Unknown")
+        parser.add_argument(f"--price{i}", default="1000.0")
+        parser.add_argument(f"--description{i}", default="")
+    for name in ("platform", "price", "color", "material", "description"):
+        parser.add_argument(f"--{name}_weight", type=float, default=0.2)
+    args = parser.parse_args()
+
+    sleep("shirt")
+    shirts = []
+    for i in (1, 2):
+        image = getattr(args, f"image{i}")
+        if image:
+            shirts.append({
+                "id": f"shirt_{i}",
+                "image_path": image,
+                "platform": getattr(args, f"platform{i}"),
+                "price": float(getattr(args, f"price{i}")),
+                "description": getattr(args, f"description{i}"),
+            })
+    best = min(shirts, key=lambda shirt: shirt["price"])
+    best["score"] = 1.0
+    best["reason"] = f"Chosen for its {best['platform']} platform score, price normalization, material quality, and description length."
+    print(json.dumps({
+        "status": "success",
+        "recommendation": best,
+        "weights_used": {name: getattr(args, f"{name}_weight")
+                         for name in ("platform", "price", "color", "material", "description")}
+    }))
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,23 @@
+import os
+import sys
+import time
+
+from _stub import sleep, write_png
+
+# Stand-in for virtual_tryon.py: FILE:<absolute path> of the result image.
+# Usage: virtual_tryon.py <user_image> <cloth_image> <output_dir>
+
+
+def main():
+    if len(sys.argv) < 4:
+        print("ERROR: Usage: virtual_tryon.py <user_image_path> <cloth_image_path> <output_dir>", flush=True)
+        sys.exit(1)
+    user_image, cloth_image, output_dir = sys.argv[1], sys.argv[2], sys.argv[3]
+    sleep("tryon")
+    filename = f"tryon_{int(time.time() * 1000)}_{os.getpid()}.png"
+    path = write_png(os.path.join(output_dir, filename), os.path.basename(user_image) + os.path.basename(cloth_image))
+    print(f"FILE:{path}", flush=True)
+
+
+if __name__ == "__main__":
+    main()
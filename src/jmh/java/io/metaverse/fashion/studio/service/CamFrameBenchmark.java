@@ -0,0 +1,78 @@
+package io.metaverse.fashion.studio.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.messaging.Message;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame cost of the webcam loop on the JVM side: reading a frame from the
+ * script's stdout, wrapping it in the base64 JSON payload and building the
+ * STOMP message for one subscriber. Scores are per frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CamFrameBenchmark {
+
+    private static final int FRAMES = 32;
+
+    /** Typical JPEG sizes for 640x480 at quality 80 and 1280x720. */
+    @Param({"40000", "120000"})
+    private int frameBytes;
+
+    private byte[] stream;
+    private FrameSubscriber subscriber;
+
+    @Setup
+    public void setUp() {
+        byte[] jpeg = new byte[frameBytes];
+        new Random(42).nextBytes(jpeg);
+        ByteBuffer out = ByteBuffer.allocate(FRAMES * (13 + frameBytes));
+        for (int i = 0; i < FRAMES; i++) {
+            out.put(CamFrameReader.FRAME).putLong(1_700_000_000_000_000L + i * 33_333L).putInt(frameBytes).put(jpeg);
+        }
+        stream = out.array();
+        subscriber = new FrameSubscriber("ws-1", "sub-0", (message, timeout) -> true);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public void readEncodeDispatch(Blackhole blackhole) throws IOException {
+        CamFrameReader reader = new CamFrameReader(new ByteArrayInputStream(stream));
+        while (reader.next()) {
+            byte[] json = CamVirtualTryOnService.toFrameJson(reader.payload(), reader.timestampMicros() / 1000);
+            Message<byte[]> message = CamVirtualTryOnService.toFrameMessage(json, "/topic/video-feed/bench", subscriber,
+                    () -> { });
+            blackhole.consume(message);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public void readOnly(Blackhole blackhole) throws IOException {
+        CamFrameReader reader = new CamFrameReader(new ByteArrayInputStream(stream));
+        while (reader.next()) {
+            blackhole.consume(reader.payload());
+        }
+    }
+}
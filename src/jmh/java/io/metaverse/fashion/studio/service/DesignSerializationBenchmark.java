@@ -0,0 +1,68 @@
+package io.metaverse.fashion.studio.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.metaverse.fashion.studio.entity.ClothingDesign;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of {@link ClothingDesign} lists as returned by the
+ * design listing endpoints, at page-sized and full-table sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DesignSerializationBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int size;
+
+    // Configured the way Spring Boot configures the mapper behind the endpoints
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private ObjectWriter listWriter;
+    private List<ClothingDesign> designs;
+
+    @Setup
+    public void setUp() {
+        designs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ClothingDesign design = new ClothingDesign();
+            design.setId((long) i);
+            design.setPrompt("A flowing summer dress with floral print, variation " + i);
+            design.setStyle(i % 2 == 0 ? "casual" : "formal");
+            design.setGender(i % 3 == 0 ? "male" : "female");
+            design.setImageUrl("http://localhost:8080/blobs/" + String.format("%064x", i) + ".png");
+            designs.add(design);
+        }
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, ClothingDesign.class));
+    }
+
+    @Benchmark
+    public byte[] objectMapper() throws Exception {
+        return objectMapper.writeValueAsBytes(designs);
+    }
+
+    @Benchmark
+    public byte[] typedWriter() throws Exception {
+        return listWriter.writeValueAsBytes(designs);
+    }
+}
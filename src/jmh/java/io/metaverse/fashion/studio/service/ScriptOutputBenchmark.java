@@ -0,0 +1,132 @@
+package io.metaverse.fashion.studio.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The production parsers of Python stdout: {@link AIClothingService#handleScriptLine}
+ * for the {@code PROGRESS:}/{@code FILE:}/{@code ERROR} lines of generate_clothing.py,
+ * {@link DiffusionWorker#deliver} for the JSON frames of the resident worker, and
+ * {@link ImageProcessingService#parseResult} for the batch rembg results. Each
+ * invocation reads the output of one run (inference progress, library noise,
+ * one result).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ScriptOutputBenchmark {
+
+    private static final String REQUEST_ID = "3f1c2a9e-0d4b-4e55-9a77-7b5e0c7d2f10";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] prefixedOutput;
+    private byte[] workerOutput;
+    private byte[] rembgOutput;
+
+    @Setup
+    public void setUp() {
+        StringBuilder prefixed = new StringBuilder();
+        StringBuilder worker = new StringBuilder();
+        StringBuilder rembg = new StringBuilder();
+        for (int step = 0; step < 50; step++) {
+            prefixed.append("PROGRESS:").append(step * 2).append('\n');
+            prefixed.append(" ").append(step * 2).append("%|####      | ").append(step).append("/50 [00:0")
+                    .append(step % 10).append("<00:12,  3.91it/s]\n");
+            worker.append("{\"id\":\"").append(REQUEST_ID).append("\",\"event\":\"progress\",\"value\":\"")
+                    .append(step * 2).append("\"}\n");
+            rembg.append("{\"id\":\"").append(String.format("%064x", step))
+                    .append("\",\"status\":\"ok\",\"output\":\"/srv/studio/data/work/temp-uploads/processed_")
+                    .append(step).append(".png\"}\n");
+            if (step % 10 == 0) {
+                rembg.append("Downloading data from 'https://github.com/danielgatis/rembg/releases/download/v0.0.0/u2net.onnx'\n");
+            }
+        }
+        prefixed.append("FILE:/srv/studio/data/work/generated/design_1700000000.png\n");
+        worker.append("{\"id\":\"").append(REQUEST_ID).append("\",\"event\":\"result\",")
+                .append("\"value\":\"/srv/studio/data/work/generated/design_1700000000.png\"}\n");
+        prefixedOutput = prefixed.toString().getBytes(StandardCharsets.UTF_8);
+        workerOutput = worker.toString().getBytes(StandardCharsets.UTF_8);
+        rembgOutput = rembg.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void prefixedLines(Blackhole blackhole) throws IOException {
+        GenerationListener listener = listener(blackhole);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(prefixedOutput)))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                AIClothingService.handleScriptLine(line, listener);
+            }
+        }
+    }
+
+    @Benchmark
+    public void workerFrames(Blackhole blackhole) throws IOException {
+        Map<String, GenerationListener> pending = new ConcurrentHashMap<>();
+        pending.put(REQUEST_ID, listener(blackhole));
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(workerOutput), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                blackhole.consume(DiffusionWorker.deliver(pending, objectMapper.readTree(line)));
+            }
+        }
+    }
+
+    @Benchmark
+    public void rembgResults(Blackhole blackhole) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(rembgOutput), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                blackhole.consume(ImageProcessingService.parseResult(objectMapper, line));
+            }
+        }
+    }
+
+    private static GenerationListener listener(Blackhole blackhole) {
+        return new GenerationListener() {
+            @Override
+            public void onProgress(String percent) {
+                blackhole.consume(percent);
+            }
+
+            @Override
+            public void onResult(String imageUrl) {
+                blackhole.consume(imageUrl);
+            }
+
+            @Override
+            public void onError(String message) {
+                blackhole.consume(message);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package io.metaverse.fashion.studio.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copying an uploaded image to disk: hashing it into the blob store, as the
+ * upload endpoints do, against a plain {@code transferTo}. The blob store
+ * already holds the content after the first call, so this measures the
+ * hash-and-write path that deduplicated uploads take.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class UploadCopyBenchmark {
+
+    @Param({"65536", "1048576", "8388608"})
+    private int uploadBytes;
+
+    private Path directory;
+    private LocalBlobStore blobStore;
+    private MockMultipartFile upload;
+    private Path target;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("upload-bench");
+        blobStore = new LocalBlobStore(directory.resolve("blobs").toString(), "http://localhost:8080/blobs/");
+        byte[] content = new byte[uploadBytes];
+        new Random(42).nextBytes(content);
+        upload = new MockMultipartFile("image", "shirt.jpg", "image/jpeg", content);
+        target = directory.resolve("upload.jpg");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public String blobStorePut() throws IOException {
+        try (InputStream in = upload.getInputStream()) {
+            return blobStore.put(in, BlobStore.extensionOf(upload.getOriginalFilename(), "jpg"));
+        }
+    }
+
+    @Benchmark
+    public Path transferTo() throws IOException {
+        Files.deleteIfExists(target);
+        upload.transferTo(target);
+        return target;
+    }
+}
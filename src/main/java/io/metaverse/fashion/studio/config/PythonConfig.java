@@ -8,6 +8,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Configuration
 public class PythonConfig {
@@ -26,4 +28,15 @@ public class PythonConfig {
         }
         return tempFile.getAbsolutePath();
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs everything that blocks on a Python process: stdout/stderr readers and
+     * requests waiting for a script to finish. One virtual thread per task, so a
+     * script that runs for minutes parks a virtual thread instead of holding a
+     * platform thread, and nothing needs to be sized or shut down per request.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService processIoExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("process-io-", 0).factory());
+    }
+}
@@ -1,10 +1,15 @@
 package io.metaverse.fashion.studio.config;
 
+import io.metaverse.fashion.studio.service.SessionTokenService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -15,12 +20,18 @@ import java.util.List;
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, SessionTokenService tokenService) throws Exception {
         http
                 .cors(Customizer.withDefaults()) // ✅ Enable CORS using the config below
                 .csrf(csrf -> csrf.disable())    // Optional: Disable CSRF for APIs
+                // Signed bearer tokens replace the HTTP session
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .addFilterBefore(new SessionTokenFilter(tokenService), UsernamePasswordAuthenticationFilter.class)
+                .exceptionHandling(e -> e.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/api/**", "/virtual-try-on-websocket/**").permitAll() // Allow open access
+                        .requestMatchers("/api/users/me").authenticated()
+                        .requestMatchers("/api/**", "/blobs/**", "/virtual-try-on-websocket/**").permitAll() // Allow open access
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll() // Probes and scraping
                         .anyRequest().authenticated()
                 );
 
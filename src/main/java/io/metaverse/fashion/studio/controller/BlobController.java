@@ -0,0 +1,72 @@
+package io.metaverse.fashion.studio.controller;
+
+import io.metaverse.fashion.studio.service.BlobStore;
+import io.metaverse.fashion.studio.service.CacheBlobStore;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@RestController
+public class BlobController {
+
+    private final BlobStore blobStore;
+    private final CacheBlobStore cacheStore;
+
+    public BlobController(BlobStore blobStore, CacheBlobStore cacheStore) {
+        this.blobStore = blobStore;
+        this.cacheStore = cacheStore;
+    }
+
+    // Keys are content hashes, so a URL always names the same bytes and can be cached forever
+    @Operation(summary = "Download a stored image")
+    @GetMapping("/blobs/{key}")
+    public ResponseEntity<Resource> getBlob(
+            @PathVariable String key,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) throws IOException {
+        // Only images are public; manifests and other internal blobs are not served
+        if (!BlobStore.isImageKey(key) || !blobStore.exists(key)) {
+            return ResponseEntity.notFound().build();
+        }
+        return serve(key, ifNoneMatch, blobStore.localPath(key),
+                CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable());
+    }
+
+    // Cached results are evicted again, so clients may keep them for a while but not for good
+    @Operation(summary = "Download a cached processing result")
+    @GetMapping("/blobs/cache/{key}")
+    public ResponseEntity<Resource> getCachedBlob(
+            @PathVariable String key,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) throws IOException {
+        if (!BlobStore.isImageKey(key) || !cacheStore.exists(key)) {
+            return ResponseEntity.notFound().build();
+        }
+        return serve(key, ifNoneMatch, cacheStore.localPath(key),
+                CacheControl.maxAge(Duration.ofHours(1)).cachePublic());
+    }
+
+    private static ResponseEntity<Resource> serve(String key, String ifNoneMatch, Path file,
+                                                  CacheControl cacheControl) {
+        String etag = "\"" + key + "\"";
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(304).eTag(etag).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok()
+                .header("X-Content-Type-Options", "nosniff")
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .contentType(MediaTypeFactory.getMediaType(key).orElse(MediaType.APPLICATION_OCTET_STREAM))
+                .body(new FileSystemResource(file));
+    }
+}
@@ -1,43 +1,84 @@
 package io.metaverse.fashion.studio.controller;
 
+import io.metaverse.fashion.studio.service.CamTryOnSession;
 import io.metaverse.fashion.studio.service.CamVirtualTryOnService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/virtual-try-on")
 public class CamVirtualTryOnController {
 
     private final CamVirtualTryOnService virtualTryOnService;
-    private final SimpMessagingTemplate messagingTemplate;
 
-    public CamVirtualTryOnController(CamVirtualTryOnService virtualTryOnService,
-                                     SimpMessagingTemplate messagingTemplate) {
+    public CamVirtualTryOnController(CamVirtualTryOnService virtualTryOnService) {
         this.virtualTryOnService = virtualTryOnService;
-        this.messagingTemplate = messagingTemplate;
     }
 
     @PostMapping(value = "/upload-cloth", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<String> uploadClothImage(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> uploadClothImage(@RequestParam("file") MultipartFile file) {
         try {
             String imagePath = virtualTryOnService.saveClothImage(file);
-            virtualTryOnService.startVirtualTryOn(imagePath, messagingTemplate);
-            return ResponseEntity.ok("Virtual try-on started successfully");
+            CamTryOnSession session = virtualTryOnService.startVirtualTryOn(imagePath);
+            return ResponseEntity.ok(Map.of(
+                    "message", "Virtual try-on started successfully",
+                    "sessionId", session.getId(),
+                    "destination", session.getDestination()
+            ));
         } catch (IOException e) {
             return ResponseEntity.badRequest().body("Error processing image: " + e.getMessage());
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
         }
     }
 
+    @PostMapping("/sessions/{sessionId}/heartbeat")
+    public ResponseEntity<String> heartbeat(@PathVariable String sessionId) {
+        return virtualTryOnService.touch(sessionId)
+                ? ResponseEntity.ok("OK")
+                : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/sessions/{sessionId}/stats")
+    public ResponseEntity<Map<String, Object>> sessionStats(@PathVariable String sessionId) {
+        return virtualTryOnService.getSession(sessionId)
+                .map(session -> ResponseEntity.ok(session.getStats()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // STOMP: clients send the "ts" of each rendered frame to /app/video-feed/{sessionId}/ack,
+    // plus a "subscription" header naming their subscription if the connection has several
+    @MessageMapping("/video-feed/{sessionId}/ack")
+    public void ackFrame(@DestinationVariable String sessionId,
+                         @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String webSocketSessionId,
+                         @Header(name = "subscription", required = false) String subscriptionId,
+                         @Payload(required = false) String timestamp) {
+        Long ts = null;
+        if (timestamp != null && !timestamp.isBlank()) {
+            try {
+                ts = Long.parseLong(timestamp.replaceAll("[^0-9]", ""));
+            } catch (NumberFormatException e) {
+                // ack without a usable timestamp still releases the next frame
+            }
+        }
+        virtualTryOnService.ackFrame(sessionId, webSocketSessionId, subscriptionId, ts);
+    }
+
     @PostMapping("/stop")
-    public ResponseEntity<String> stopVirtualTryOn() {
-        virtualTryOnService.stopVirtualTryOn();
-        return ResponseEntity.ok("Virtual try-on stopped");
+    public ResponseEntity<String> stopVirtualTryOn(@RequestParam String sessionId) {
+        return virtualTryOnService.stopVirtualTryOn(sessionId)
+                ? ResponseEntity.ok("Virtual try-on stopped")
+                : ResponseEntity.notFound().build();
     }
 }
\ No newline at end of file
@@ -1,41 +1,56 @@
 package io.metaverse.fashion.studio.controller;
 
 import io.metaverse.fashion.studio.entity.ClothingDesign;
+import io.metaverse.fashion.studio.repository.DesignImage;
+import io.metaverse.fashion.studio.repository.DesignSummary;
 import io.metaverse.fashion.studio.service.AIClothingService;
+import io.metaverse.fashion.studio.service.GenerationJob;
+import io.metaverse.fashion.studio.service.GenerationJobService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import reactor.core.publisher.Flux;
 
 import java.io.IOException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/designs")
 @CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
 public class DesignController {
 
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final AIClothingService aiService;
+    private final GenerationJobService jobService;
 
     @Autowired
-    public DesignController(AIClothingService aiService) {
+    public DesignController(AIClothingService aiService, GenerationJobService jobService) {
         this.aiService = aiService;
+        this.jobService = jobService;
     }
 
     @GetMapping("/generate")
     public ResponseEntity<?> generateDesign(
             @RequestParam String prompt,
             @RequestParam(defaultValue = "casual") String style,
-            @RequestParam(defaultValue = "man") String gender
+            @RequestParam(defaultValue = "man") String gender,
+            @RequestParam(required = false) Long seed
     ) {
         try {
             String decodedPrompt = URLDecoder.decode(prompt, StandardCharsets.UTF_8);
-            ClothingDesign design = aiService.generateClothingDesign(decodedPrompt, style, gender);
+            ClothingDesign design = aiService.generateClothingDesign(decodedPrompt, style, gender, seed);
             return ResponseEntity.ok(design);
         } catch (IOException e) {
             return ResponseEntity.internalServerError().body("Error generating design: " + e.getMessage());
@@ -46,11 +61,66 @@ public class DesignController {
 
     @GetMapping(value = "/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<ServerSentEvent<String>> generateDesignStream(
+            @RequestParam String prompt,
+            @RequestParam(defaultValue = "casual") String style,
+            @RequestParam(defaultValue = "man") String gender,
+            @RequestParam(required = false) Long seed
+    ) {
+        return aiService.generateClothingDesignStream(prompt, style, gender, seed);
+    }
+
+    /**
+     * The stored design whose prompt is a near duplicate of {@code prompt} for the
+     * same style and gender, so a client can offer it before generating.
+     */
+    @GetMapping("/similar")
+    public ResponseEntity<AIClothingService.SimilarDesign> findSimilarDesign(
             @RequestParam String prompt,
             @RequestParam(defaultValue = "casual") String style,
             @RequestParam(defaultValue = "man") String gender
     ) {
-        return aiService.generateClothingDesignStream(prompt, style, gender);
+        return aiService.findSimilarDesign(prompt, style, gender)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /** Takes the id carried on every event of a generation stream. */
+    @PostMapping("/generate/{id}/cancel")
+    public ResponseEntity<String> cancelGeneration(@PathVariable String id) {
+        return aiService.cancelGeneration(id)
+                ? ResponseEntity.ok("Generation cancelled")
+                : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitJob(
+            @RequestParam String prompt,
+            @RequestParam(defaultValue = "casual") String style,
+            @RequestParam(defaultValue = "man") String gender,
+            @RequestParam(required = false) Long seed,
+            @RequestParam(defaultValue = "0") int priority
+    ) {
+        try {
+            String decodedPrompt = URLDecoder.decode(prompt, StandardCharsets.UTF_8);
+            GenerationJob job = jobService.submit(decodedPrompt, style, gender, seed, priority);
+            return ResponseEntity.accepted().body(job);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<GenerationJob> getJob(@PathVariable String id) {
+        return jobService.getJob(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/jobs/{id}/cancel")
+    public ResponseEntity<GenerationJob> cancelJob(@PathVariable String id) {
+        return jobService.cancel(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/image-urls")
@@ -62,4 +132,81 @@ public class DesignController {
     public List<ClothingDesign> getAllDesigns() {
         return aiService.getAllDesigns();
     }
+
+    @GetMapping("/page")
+    public Map<String, Object> getDesignPage(
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "50") int size
+    ) {
+        List<DesignSummary> rows = aiService.getDesignPage(after, clampPageSize(size));
+        return page(rows, rows.isEmpty() ? null : rows.get(rows.size() - 1).id());
+    }
+
+    @GetMapping("/image-urls/page")
+    public Map<String, Object> getImageUrlPage(
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "100") int size
+    ) {
+        List<DesignImage> rows = aiService.getImageUrlPage(after, clampPageSize(size));
+        return page(rows.stream().map(DesignImage::imageUrl).toList(),
+                rows.isEmpty() ? null : rows.get(rows.size() - 1).id());
+    }
+
+    /**
+     * Newest designs first, optionally filtered by style and gender, e.g.
+     * {@code /search?style=casual&gender=woman}. Pass {@code nextCursor} back as
+     * {@code cursor} for the next page.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchDesigns(
+            @RequestParam(required = false) String style,
+            @RequestParam(required = false) String gender,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size
+    ) {
+        Instant before = null;
+        long beforeId = 0;
+        if (cursor != null && !cursor.isBlank()) {
+            // "<createdAt in epoch micros>-<id>" of the last design on the previous page
+            String[] parts = cursor.split("-", 2);
+            try {
+                before = Instant.EPOCH.plus(Long.parseLong(parts[0]), ChronoUnit.MICROS);
+                beforeId = Long.parseLong(parts[1]);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                return ResponseEntity.badRequest().body("Invalid cursor: " + cursor);
+            }
+        }
+        List<DesignSummary> rows = aiService.searchDesigns(blankToNull(style), blankToNull(gender), before, beforeId,
+                clampPageSize(size));
+        String nextCursor = null;
+        if (!rows.isEmpty()) {
+            DesignSummary last = rows.get(rows.size() - 1);
+            nextCursor = ChronoUnit.MICROS.between(Instant.EPOCH, last.createdAt()) + "-" + last.id();
+        }
+        return ResponseEntity.ok(page(rows, nextCursor));
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportDesigns() {
+        StreamingResponseBody body = aiService::exportDesigns;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private static int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private static Map<String, Object> page(List<?> items, Object nextCursor) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("items", items);
+        // null cursor means the client has reached the end
+        response.put("nextCursor", nextCursor);
+        return response;
+    }
 }
\ No newline at end of file
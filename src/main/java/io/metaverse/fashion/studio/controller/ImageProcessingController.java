@@ -2,17 +2,23 @@ package io.metaverse.fashion.studio.controller;
 
 import io.metaverse.fashion.studio.service.ImageProcessingService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import reactor.core.publisher.Flux;
+
+import java.util.List;
 import java.util.Map;
 
 @RestController
 public class ImageProcessingController {
 
+    private static final int MAX_BATCH_SIZE = 500;
+
     @Autowired
     private ImageProcessingService imageProcessingService;
 
@@ -28,4 +34,16 @@ public class ImageProcessingController {
                     .body("{\"error\":\"" + e.getMessage() + "\"}");
         }
     }
-}
\ No newline at end of file
+
+    // Streams one JSON line per URL as each image finishes
+    @PostMapping(value = "/api/image/remove-background/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<Map<String, Object>>> removeBackgroundBatch(@RequestBody Map<String, List<String>> payload) {
+        List<String> imageUrls = payload.get("imageUrls");
+        if (imageUrls == null || imageUrls.isEmpty() || imageUrls.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(imageProcessingService.removeBackgroundBatch(imageUrls));
+    }
+}
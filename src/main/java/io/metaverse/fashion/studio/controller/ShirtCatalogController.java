@@ -0,0 +1,81 @@
+package io.metaverse.fashion.studio.controller;
+
+import io.metaverse.fashion.studio.service.ShirtCatalogService;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/shirts/catalog")
+public class ShirtCatalogController {
+
+    private static final int MAX_RESULTS = 100;
+
+    private final ShirtCatalogService catalogService;
+
+    public ShirtCatalogController(ShirtCatalogService catalogService) {
+        this.catalogService = catalogService;
+    }
+
+    @Operation(summary = "Add a shirt to the catalog", description = "Extracts colour, material and platform features once and indexes the shirt for similarity search")
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> ingest(
+            @RequestPart("image") MultipartFile image,
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "platform", required = false) String platform,
+            @RequestParam(value = "price", required = false) Double price,
+            @RequestParam(value = "description", required = false) String description,
+            @RequestParam(value = "imageUrl", required = false) String imageUrl) {
+        try {
+            return ResponseEntity.ok(catalogService.ingest(image, name, platform, price, description, imageUrl));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(
+                    Map.of("status", "error", "message", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Get a catalog shirt")
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getShirt(@PathVariable Long id) {
+        return catalogService.getShirt(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Find similar shirts by image", description = "Returns the k catalog shirts whose average colour is closest to the uploaded image")
+    @PostMapping(value = "/similar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> findSimilar(
+            @RequestPart("image") MultipartFile image,
+            @RequestParam(value = "k", defaultValue = "10") int k) {
+        if (k < 1 || k > MAX_RESULTS) {
+            return ResponseEntity.badRequest().body(
+                    Map.of("status", "error", "message", "k must be between 1 and " + MAX_RESULTS));
+        }
+        try {
+            return ResponseEntity.ok(catalogService.findSimilar(image, k));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(
+                    Map.of("status", "error", "message", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Find similar shirts by colour", description = "Returns the k catalog shirts whose average colour is closest to a #RRGGBB colour")
+    @GetMapping("/similar")
+    public ResponseEntity<?> findSimilarToColor(
+            @RequestParam("color") String color,
+            @RequestParam(value = "k", defaultValue = "10") int k) {
+        if (k < 1 || k > MAX_RESULTS) {
+            return ResponseEntity.badRequest().body(
+                    Map.of("status", "error", "message", "k must be between 1 and " + MAX_RESULTS));
+        }
+        try {
+            return ResponseEntity.ok(catalogService.findSimilar(color, k));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", e.getMessage()));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package io.metaverse.fashion.studio.controller;
 
 import io.metaverse.fashion.studio.service.ShirtRecommendationService;
+import io.metaverse.fashion.studio.service.ShirtScorer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -9,12 +10,15 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/shirts")
 public class ShirtRecommendationController {
 
+    private static final int MAX_RANKED_SHIRTS = 100;
+
     private final ShirtRecommendationService recommendationService;
 
     public ShirtRecommendationController(ShirtRecommendationService recommendationService) {
@@ -45,4 +49,36 @@ public class ShirtRecommendationController {
                     Map.of("status", "error", "message", e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Rank shirts", description = "Upload any number of shirts (parallel lists of images, platforms, prices and descriptions) to get them ranked with per-component scores")
+    @PostMapping(value = "/rank", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> rankShirts(
+            @RequestPart("images") List<MultipartFile> images,
+            @RequestParam(value = "platforms", required = false) List<String> platforms,
+            @RequestParam(value = "prices", required = false) List<Double> prices,
+            @RequestParam(value = "descriptions", required = false) List<String> descriptions,
+            @RequestParam(value = "platformWeight", defaultValue = "0.2") double platformWeight,
+            @RequestParam(value = "priceWeight", defaultValue = "0.3") double priceWeight,
+            @RequestParam(value = "colorWeight", defaultValue = "0.2") double colorWeight,
+            @RequestParam(value = "materialWeight", defaultValue = "0.2") double materialWeight,
+            @RequestParam(value = "descriptionWeight", defaultValue = "0.1") double descriptionWeight,
+            @Parameter(description = "Optional #RRGGBB colour; enables the colour component")
+            @RequestParam(value = "preferredColor", required = false) String preferredColor) {
+
+        if (images.size() > MAX_RANKED_SHIRTS) {
+            return ResponseEntity.badRequest().body(
+                    Map.of("status", "error", "message", "At most " + MAX_RANKED_SHIRTS + " shirts can be ranked at once"));
+        }
+        try {
+            ShirtScorer.Weights weights = new ShirtScorer.Weights(
+                    platformWeight, priceWeight, colorWeight, materialWeight, descriptionWeight);
+            return ResponseEntity.ok(recommendationService.rankShirts(
+                    images, platforms, prices, descriptions, weights, preferredColor));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(
+                    Map.of("status", "error", "message", e.getMessage()));
+        }
+    }
+}
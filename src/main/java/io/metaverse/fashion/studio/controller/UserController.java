@@ -1,11 +1,17 @@
 package io.metaverse.fashion.studio.controller;
 
 import io.metaverse.fashion.studio.entity.User;
+import io.metaverse.fashion.studio.service.SessionTokenService;
 import io.metaverse.fashion.studio.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
@@ -13,6 +19,9 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private SessionTokenService tokenService;
+
     @PostMapping("/signup")
     public ResponseEntity<User> signup(@RequestBody User user) {
         try {
@@ -23,13 +32,33 @@ public class UserController {
         }
     }
 
+    /**
+     * Returns a bearer token for {@code Authorization: Bearer <token>}; it is
+     * verified from its signature, so later requests don't send the password.
+     */
     @PostMapping("/login")
-    public ResponseEntity<String> login(@RequestParam String username, @RequestParam String password) {
-        boolean isAuthenticated = userService.loginUser(username, password);
-        if (isAuthenticated) {
-            return ResponseEntity.ok("Login successful");
-        } else {
+    public ResponseEntity<?> login(@RequestParam String username, @RequestParam String password) {
+        Optional<User> user = userService.loginUser(username, password);
+        if (user.isEmpty()) {
             return ResponseEntity.status(401).body("Invalid username or password");
         }
+        SessionTokenService.IssuedToken issued = tokenService.issue(user.get());
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("message", "Login successful");
+        response.put("username", user.get().getUsername());
+        response.put("token", issued.token());
+        response.put("tokenType", "Bearer");
+        response.put("expiresAt", issued.expiresAt());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/me")
+    public ResponseEntity<Map<String, Object>> me(Authentication authentication) {
+        SessionTokenService.SessionToken token = (SessionTokenService.SessionToken) authentication.getDetails();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("id", token.userId());
+        response.put("username", token.username());
+        response.put("expiresAt", token.expiresAt());
+        return ResponseEntity.ok(response);
     }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package io.metaverse.fashion.studio.entity;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "catalog_shirts")
+public class CatalogShirt {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String name;
+    private String platform;
+    private Double price;
+
+    @Column(length = 2048)
+    private String description;
+
+    @Column(length = 2048)
+    private String imageUrl;
+
+    private String material;
+
+    // Features computed once at ingest so searches never rerun k-means
+    private double avgRed;
+    private double avgGreen;
+    private double avgBlue;
+
+    @Column(length = 64)
+    private String dominantColors; // "r,g,b;r,g,b;r,g,b"
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public String getPlatform() { return platform; }
+    public void setPlatform(String platform) { this.platform = platform; }
+    public Double getPrice() { return price; }
+    public void setPrice(Double price) { this.price = price; }
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+    public String getImageUrl() { return imageUrl; }
+    public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
+    public String getMaterial() { return material; }
+    public void setMaterial(String material) { this.material = material; }
+    public double getAvgRed() { return avgRed; }
+    public void setAvgRed(double avgRed) { this.avgRed = avgRed; }
+    public double getAvgGreen() { return avgGreen; }
+    public void setAvgGreen(double avgGreen) { this.avgGreen = avgGreen; }
+    public double getAvgBlue() { return avgBlue; }
+    public void setAvgBlue(double avgBlue) { this.avgBlue = avgBlue; }
+    public String getDominantColors() { return dominantColors; }
+    public void setDominantColors(String dominantColors) { this.dominantColors = dominantColors; }
+}
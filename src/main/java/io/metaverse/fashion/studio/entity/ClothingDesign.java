@@ -1,9 +1,23 @@
 package io.metaverse.fashion.studio.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
 
 @Entity
-@Table(name = "clothing_designs")
+@Table(name = "clothing_designs", uniqueConstraints = {
+        // Generations that share an image (cache hits, coalesced runs) share one row
+        @UniqueConstraint(name = "uk_clothing_designs_image_url", columnNames = "image_url")
+}, indexes = {
+        // Gallery filters, newest first: one index per filter combination, each ending in
+        // created_at so a page is read in order rather than sorted
+        @Index(name = "idx_clothing_designs_style_gender_created", columnList = "style, gender, created_at"),
+        @Index(name = "idx_clothing_designs_style_created", columnList = "style, created_at"),
+        @Index(name = "idx_clothing_designs_gender_created", columnList = "gender, created_at"),
+        @Index(name = "idx_clothing_designs_created", columnList = "created_at")
+})
 public class ClothingDesign {
 
     @Id
@@ -17,6 +31,12 @@ public class ClothingDesign {
     @Column(length = 2048) // Increased length for URL
     private String imageUrl; // Changed from byte[] to String
 
+    // The default backfills rows that predate the column when the schema is updated
+    @CreationTimestamp
+    @ColumnDefault("CURRENT_TIMESTAMP")
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
     // Getters and Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -28,4 +48,5 @@ public class ClothingDesign {
     public void setGender(String gender) { this.gender = gender; }
     public String getImageUrl() { return imageUrl; }
     public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
+    public Instant getCreatedAt() { return createdAt; }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package io.metaverse.fashion.studio.entity;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 
 @Entity
@@ -16,6 +17,8 @@ public class User {
     @Column(nullable = false, unique = true)
     private String email;
 
+    // Accepted on signup, never echoed back
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     @Column(nullable = false)
     private String password;
 
@@ -0,0 +1,7 @@
+package io.metaverse.fashion.studio.repository;
+
+/**
+ * Id and average colour of a catalog shirt, the only columns the colour index needs.
+ */
+public record CatalogColor(Long id, double avgRed, double avgGreen, double avgBlue) {
+}
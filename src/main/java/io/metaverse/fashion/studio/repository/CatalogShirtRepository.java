@@ -0,0 +1,21 @@
+package io.metaverse.fashion.studio.repository;
+
+import io.metaverse.fashion.studio.entity.CatalogShirt;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.util.stream.Stream;
+
+@Repository
+public interface CatalogShirtRepository extends JpaRepository<CatalogShirt, Long> {
+
+    // Must be consumed inside a read-only transaction so the driver can use a server-side cursor
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    @Query("SELECT new io.metaverse.fashion.studio.repository.CatalogColor(s.id, s.avgRed, s.avgGreen, s.avgBlue) " +
+            "FROM CatalogShirt s")
+    Stream<CatalogColor> streamAllColors();
+}
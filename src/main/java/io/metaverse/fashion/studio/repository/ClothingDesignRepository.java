@@ -1,14 +1,65 @@
 package io.metaverse.fashion.studio.repository;
 
 import io.metaverse.fashion.studio.entity.ClothingDesign;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ClothingDesignRepository extends JpaRepository<ClothingDesign, Long> {
     @Query("SELECT d.imageUrl FROM ClothingDesign d")
     List<String> findAllImageUrls();
-}
\ No newline at end of file
+
+    Optional<ClothingDesign> findByImageUrl(String imageUrl);
+
+    // Keyset pages: callers pass the last id they saw, so no OFFSET scan
+    @Query("SELECT new io.metaverse.fashion.studio.repository.DesignSummary(d.id, d.prompt, d.style, d.gender, d.imageUrl, d.createdAt) " +
+            "FROM ClothingDesign d WHERE d.id > :afterId ORDER BY d.id")
+    List<DesignSummary> findSummariesAfter(@Param("afterId") long afterId, Limit limit);
+
+    @Query("SELECT new io.metaverse.fashion.studio.repository.DesignImage(d.id, d.imageUrl) " +
+            "FROM ClothingDesign d WHERE d.id > :afterId ORDER BY d.id")
+    List<DesignImage> findImageUrlsAfter(@Param("afterId") long afterId, Limit limit);
+
+    // Must be consumed inside a read-only transaction so the driver can use a server-side cursor
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new io.metaverse.fashion.studio.repository.DesignSummary(d.id, d.prompt, d.style, d.gender, d.imageUrl, d.createdAt) " +
+            "FROM ClothingDesign d ORDER BY d.id")
+    Stream<DesignSummary> streamAllSummaries();
+
+    // Newest first, keyset-paged on (createdAt, id) so each page is an index range scan.
+    // One query per filter combination keeps every one of them on its own index.
+    @Query("SELECT new io.metaverse.fashion.studio.repository.DesignSummary(d.id, d.prompt, d.style, d.gender, d.imageUrl, d.createdAt) " +
+            "FROM ClothingDesign d WHERE d.createdAt <= :before AND (d.createdAt < :before OR d.id < :beforeId) " +
+            "ORDER BY d.createdAt DESC, d.id DESC")
+    List<DesignSummary> findLatest(@Param("before") Instant before, @Param("beforeId") long beforeId, Limit limit);
+
+    @Query("SELECT new io.metaverse.fashion.studio.repository.DesignSummary(d.id, d.prompt, d.style, d.gender, d.imageUrl, d.createdAt) " +
+            "FROM ClothingDesign d WHERE d.style = :style AND " +
+            "d.createdAt <= :before AND (d.createdAt < :before OR d.id < :beforeId) ORDER BY d.createdAt DESC, d.id DESC")
+    List<DesignSummary> findLatestByStyle(@Param("style") String style, @Param("before") Instant before,
+                                          @Param("beforeId") long beforeId, Limit limit);
+
+    @Query("SELECT new io.metaverse.fashion.studio.repository.DesignSummary(d.id, d.prompt, d.style, d.gender, d.imageUrl, d.createdAt) " +
+            "FROM ClothingDesign d WHERE d.gender = :gender AND " +
+            "d.createdAt <= :before AND (d.createdAt < :before OR d.id < :beforeId) ORDER BY d.createdAt DESC, d.id DESC")
+    List<DesignSummary> findLatestByGender(@Param("gender") String gender, @Param("before") Instant before,
+                                           @Param("beforeId") long beforeId, Limit limit);
+
+    @Query("SELECT new io.metaverse.fashion.studio.repository.DesignSummary(d.id, d.prompt, d.style, d.gender, d.imageUrl, d.createdAt) " +
+            "FROM ClothingDesign d WHERE d.style = :style AND d.gender = :gender AND " +
+            "d.createdAt <= :before AND (d.createdAt < :before OR d.id < :beforeId) ORDER BY d.createdAt DESC, d.id DESC")
+    List<DesignSummary> findLatestByStyleAndGender(@Param("style") String style, @Param("gender") String gender,
+                                                   @Param("before") Instant before, @Param("beforeId") long beforeId,
+                                                   Limit limit);
+}
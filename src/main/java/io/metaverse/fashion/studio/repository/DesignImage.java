@@ -0,0 +1,7 @@
+package io.metaverse.fashion.studio.repository;
+
+/**
+ * Id and image URL of a {@code ClothingDesign}, enough to page through the gallery images.
+ */
+public record DesignImage(Long id, String imageUrl) {
+}
@@ -0,0 +1,9 @@
+package io.metaverse.fashion.studio.repository;
+
+import java.time.Instant;
+
+/**
+ * Read-only projection of a {@code ClothingDesign} row for gallery listings and exports.
+ */
+public record DesignSummary(Long id, String prompt, String style, String gender, String imageUrl, Instant createdAt) {
+}
@@ -1,12 +1,21 @@
 package io.metaverse.fashion.studio.service;
 
 import io.metaverse.fashion.studio.entity.ClothingDesign;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.metaverse.fashion.studio.repository.ClothingDesignRepository;
+import io.metaverse.fashion.studio.repository.DesignImage;
+import io.metaverse.fashion.studio.repository.DesignSummary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.http.codec.ServerSentEvent;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
@@ -14,27 +23,89 @@ import reactor.core.publisher.FluxSink;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class AIClothingService {
 
     Logger log = LoggerFactory.getLogger(AIClothingService.class);
 
+    // Cursor for the first search page: after every real row
+    private static final Instant SEARCH_START = Instant.parse("9999-12-31T23:59:59Z");
+
     @Value("${ai.output.dir}")
     private String outputDir;
 
+    @Value("${ai.generation.timeout-minutes:15}")
+    private long generationTimeoutMinutes;
+
+    // Unset by default, so a request without a seed gets a fresh image
+    @Value("${ai.generation.seed:}")
+    private Long defaultSeed;
+
+    @Value("${python.executable:python}")
+    private String pythonExecutable;
+
     private final String pythonScriptPath;
     private final ClothingDesignRepository clothingDesignRepository;
+    private final DiffusionWorker diffusionWorker;
+    private final GenerationCache generationCache;
+    private final DesignDeduplicator deduplicator;
+    private final BlobStore blobStore;
+    private final PythonProcessMetrics metrics;
+    private final ExecutorService processIoExecutor;
+    private final Semaphore generationPermits;
+    private final Map<String, GenerationCancellation> activeStreams = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter exportWriter;
+
+    /** A stored design whose prompt is a near duplicate of the one asked for. */
+    public record SimilarDesign(ClothingDesign design, double similarity) {
+    }
 
     @Autowired
-    public AIClothingService(@Value("${python.script.path}") String pythonScriptPath, ClothingDesignRepository clothingDesignRepository) {
+    public AIClothingService(@Value("${python.script.path}") String pythonScriptPath, ClothingDesignRepository clothingDesignRepository,
+                             DiffusionWorker diffusionWorker, GenerationCache generationCache,
+                             DesignDeduplicator deduplicator, BlobStore blobStore, PythonProcessMetrics metrics,
+                             @Qualifier("processIoExecutor") ExecutorService processIoExecutor,
+                             @Value("${ai.jobs.max-concurrent:1}") int maxConcurrentGenerations,
+                             ObjectMapper objectMapper) {
         this.pythonScriptPath = pythonScriptPath;
         this.clothingDesignRepository = clothingDesignRepository;
+        this.diffusionWorker = diffusionWorker;
+        this.generationCache = generationCache;
+        this.deduplicator = deduplicator;
+        this.blobStore = blobStore;
+        this.metrics = metrics;
+        this.processIoExecutor = processIoExecutor;
+        this.generationPermits = new Semaphore(maxConcurrentGenerations, true);
+        // Spring's mapper, so createdAt goes through the JavaTimeModule as an ISO-8601 string
+        this.objectMapper = objectMapper;
+        this.exportWriter = objectMapper.writerFor(DesignSummary.class)
+                .without(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
     }
 
     //to return all the image urls
@@ -46,46 +117,159 @@ public class AIClothingService {
         return clothingDesignRepository.findAll();
     }
 
+    public List<DesignSummary> getDesignPage(long afterId, int size) {
+        return clothingDesignRepository.findSummariesAfter(afterId, Limit.of(size));
+    }
+
+    public List<DesignImage> getImageUrlPage(long afterId, int size) {
+        return clothingDesignRepository.findImageUrlsAfter(afterId, Limit.of(size));
+    }
+
+    /**
+     * Newest designs first, filtered by style and/or gender when given. Pass the
+     * createdAt and id of the last design seen to get the next page, or a null
+     * {@code before} for the first.
+     */
+    public List<DesignSummary> searchDesigns(String style, String gender, Instant before, long beforeId, int size) {
+        if (before == null) {
+            before = SEARCH_START;
+            beforeId = Long.MAX_VALUE;
+        }
+        Limit limit = Limit.of(size);
+        if (style != null && gender != null) {
+            return clothingDesignRepository.findLatestByStyleAndGender(style, gender, before, beforeId, limit);
+        } else if (style != null) {
+            return clothingDesignRepository.findLatestByStyle(style, before, beforeId, limit);
+        } else if (gender != null) {
+            return clothingDesignRepository.findLatestByGender(gender, before, beforeId, limit);
+        }
+        return clothingDesignRepository.findLatest(before, beforeId, limit);
+    }
+
+    /**
+     * The stored design for the same style and gender whose prompt is most
+     * similar to {@code prompt}, if any reaches {@code ai.dedup.threshold}.
+     */
+    public Optional<SimilarDesign> findSimilarDesign(String prompt, String style, String gender) {
+        return deduplicator.findSimilar(prompt, style, gender)
+                .flatMap(match -> clothingDesignRepository.findById(match.id())
+                        .map(design -> new SimilarDesign(design, match.similarity())));
+    }
+
+    /** In return mode, the near duplicate to hand back instead of generating. An explicit seed always generates. */
+    private Optional<SimilarDesign> reusableDesign(String prompt, String style, String gender, Long seed) {
+        if (seed != null || deduplicator.mode() != DesignDeduplicator.Mode.RETURN) {
+            return Optional.empty();
+        }
+        Optional<SimilarDesign> similar = findSimilarDesign(prompt, style, gender);
+        similar.ifPresent(s -> log.info("Returning design {} (similarity {}) instead of generating \"{}\"",
+                s.design().getId(), String.format("%.2f", s.similarity()), prompt));
+        return similar;
+    }
+
+    /**
+     * Writes every design as one JSON object per line. Rows are pulled through a
+     * cursor and never collected, so memory use does not grow with the table.
+     */
+    @Transactional(readOnly = true)
+    public void exportDesigns(OutputStream out) throws IOException {
+        try (Stream<DesignSummary> designs = clothingDesignRepository.streamAllSummaries()) {
+            Iterator<DesignSummary> iterator = designs.iterator();
+            while (iterator.hasNext()) {
+                out.write(exportWriter.writeValueAsBytes(iterator.next()));
+                out.write('\n');
+            }
+        }
+        out.flush();
+    }
+
     public ClothingDesign generateClothingDesign(String prompt, String style, String gender) throws IOException {
+        return generateClothingDesign(prompt, style, gender, null);
+    }
+
+    public ClothingDesign generateClothingDesign(String prompt, String style, String gender, Long seed) throws IOException {
+        return generateClothingDesign(prompt, style, gender, seed, percent -> log.debug("Generation progress: {}%", percent));
+    }
+
+    public ClothingDesign generateClothingDesign(String prompt, String style, String gender, Long seed,
+                                                 Consumer<String> progress) throws IOException {
+        return generateClothingDesign(prompt, style, gender, seed, progress, new GenerationCancellation());
+    }
+
+    /**
+     * @throws CancellationException if {@code cancellation} is cancelled before the design is ready
+     */
+    public ClothingDesign generateClothingDesign(String prompt, String style, String gender, Long seed,
+                                                 Consumer<String> progress, GenerationCancellation cancellation)
+            throws IOException {
+        Optional<SimilarDesign> reusable = reusableDesign(prompt, style, gender, seed);
+        if (reusable.isPresent()) {
+            progress.accept("100");
+            return reusable.get().design();
+        }
+
+        long started = System.nanoTime();
+        Long effectiveSeed = seed != null ? seed : defaultSeed;
         // Ensure output directory exists
         Files.createDirectories(Paths.get(outputDir));
 
-        ProcessBuilder pb = new ProcessBuilder(
-                "python",
-                pythonScriptPath,
-                "\"" + prompt + "\"",
-                style,
-                gender,
-                outputDir
-        );
+        CompletableFuture<String> result = new CompletableFuture<>();
+        GenerationListener listener = new GenerationListener() {
+            private String error;
 
-        // Redirect error stream to standard output
-        pb.redirectErrorStream(true);
-
-        Process process = pb.start();
+            @Override
+            public void onProgress(String percent) {
+                progress.accept(percent);
+            }
 
-        String imageUrl = null;
+            @Override
+            public void onResult(String imageUrl) {
+                result.complete(imageUrl);
+            }
 
-        // Capture and log Python output in real-time
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream()))) {
+            @Override
+            public void onError(String message) {
+                log.error("Python Error Output: {}", message);
+                error = message;
+            }
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.startsWith("ERROR")) {
-                    log.error("Python Error Output: {}", line);
+            @Override
+            public void onComplete() {
+                if (error != null) {
+                    result.completeExceptionally(new IOException("Generation failed: " + error));
                 } else {
-                    log.info("Python Output: {}", line);
-
-                    // Check if the line is the image URL (the last line printed by Python)
-                    if (line.startsWith("http")) {
-                        imageUrl = line.trim();
-                    }
+                    // No-op after onResult; otherwise the script ended without reporting an image
+                    result.completeExceptionally(new IOException("Generation finished without an image"));
                 }
             }
-        }
+        };
+
+        cancellation.onCancel(() -> result.completeExceptionally(new CancellationException("Generation cancelled")));
+        generate(prompt, style, gender, effectiveSeed, listener, cancellation);
+
+        String imageUrl = awaitImageUrl(result, cancellation);
+        metrics.recordStage("generate-clothing", "generate", started);
 
         log.info("Image generation completed...");
+        long saving = System.nanoTime();
+        ClothingDesign design = findOrSaveDesign(prompt, style, gender, imageUrl);
+        metrics.recordStage("generate-clothing", "db-save", saving);
+        return design;
+    }
+
+    /**
+     * Cached and coalesced generations share an image URL, so reuse the row
+     * already stored for it instead of inserting a duplicate. image_url is
+     * unique, so when two requests race to store the same image the loser
+     * loads the winner's row.
+     */
+    private ClothingDesign findOrSaveDesign(String prompt, String style, String gender, String imageUrl) {
+        Optional<ClothingDesign> existing = clothingDesignRepository.findByImageUrl(imageUrl);
+        if (existing.isPresent()) {
+            log.info("Reusing stored design {} for {}", existing.get().getId(), imageUrl);
+            return existing.get();
+        }
+
         log.info("Trying to save the imageUrl into database...");
 
         // Store image in database using JPA repository
@@ -96,52 +280,388 @@ public class AIClothingService {
         design.setImageUrl(imageUrl);
 
         log.debug("Attempting to save design to database");
-        ClothingDesign savedDesign = clothingDesignRepository.save(design);
+        ClothingDesign savedDesign;
+        try {
+            savedDesign = clothingDesignRepository.save(design);
+        } catch (DataIntegrityViolationException e) {
+            ClothingDesign stored = clothingDesignRepository.findByImageUrl(imageUrl).orElseThrow(() -> e);
+            log.info("Reusing design {} stored concurrently for {}", stored.getId(), imageUrl);
+            return stored;
+        }
         log.info("Design successfully saved to database with ID: {}", savedDesign.getId());
+        deduplicator.add(savedDesign);
 
-        return design;
+        return savedDesign;
     }
 
     public Flux<ServerSentEvent<String>> generateClothingDesignStream(String prompt, String style, String gender) {
+        return generateClothingDesignStream(prompt, style, gender, null);
+    }
+
+    /**
+     * Streams progress as server-sent events. Every event carries the generation
+     * id, which {@link #cancelGeneration(String)} takes; a client that disconnects
+     * cancels the generation the same way.
+     */
+    public Flux<ServerSentEvent<String>> generateClothingDesignStream(String prompt, String style, String gender,
+                                                                      Long seed) {
+        Long effectiveSeed = seed != null ? seed : defaultSeed;
+        String generationId = UUID.randomUUID().toString();
         return Flux.create(emitter -> {
-            ExecutorService executor = Executors.newSingleThreadExecutor();
-            executor.submit(() -> {
-                try {
-                    Files.createDirectories(Paths.get(outputDir));
-                    ProcessBuilder pb = new ProcessBuilder(
-                            "python",
-                            pythonScriptPath,
-                            "\"" + prompt + "\"",
-                            style,
-                            gender,
-                            outputDir
-                    );
-                    pb.redirectErrorStream(true);
-                    Process process = pb.start();
-                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                        String line;
-                        String imageUrl = null;
-                        while ((line = reader.readLine()) != null) {
-                            log.info("Python Output Line: {}", line); // Add this line for debugging
-                            if (line.startsWith("PROGRESS:")) {
-                                String percent = line.replace("PROGRESS:", "").trim();
-                                emitter.next(ServerSentEvent.builder(percent).build());
-                            } else if (line.startsWith("http")) {
-                                imageUrl = line.trim();
-                                emitter.next(ServerSentEvent.builder("COMPLETE:" + imageUrl).build());
-                            } else if (line.startsWith("ERROR")) {
-                                emitter.next(ServerSentEvent.builder("ERROR:" + line).build());
-                            }
-                        }
-                        process.waitFor();
-                    }
-                    emitter.complete();
-                } catch (Exception e) {
-                    log.error("Error in generateClothingDesignStream", e);
-                    emitter.next(ServerSentEvent.builder("ERROR:" + e.getMessage()).build());
-                    emitter.complete();
+            GenerationCancellation cancellation = new GenerationCancellation();
+            activeStreams.put(generationId, cancellation);
+            emitter.onDispose(() -> activeStreams.remove(generationId));
+            emitter.onCancel(() -> {
+                if (cancellation.cancel()) {
+                    log.info("Client left, cancelling generation {}", generationId);
+                    metrics.cancelled("generate-clothing", "disconnect");
                 }
             });
+            cancellation.onCancel(() -> {
+                emitter.next(ServerSentEvent.builder("CANCELLED").id(generationId).build());
+                emitter.complete();
+            });
+
+            GenerationListener listener = new GenerationListener() {
+                @Override
+                public void onProgress(String percent) {
+                    emitter.next(ServerSentEvent.builder(percent).id(generationId).build());
+                }
+
+                @Override
+                public void onResult(String imageUrl) {
+                    emitter.next(ServerSentEvent.builder("COMPLETE:" + imageUrl).id(generationId).build());
+                }
+
+                @Override
+                public void onError(String message) {
+                    emitter.next(ServerSentEvent.builder("ERROR:" + message).id(generationId).build());
+                }
+
+                @Override
+                public void onComplete() {
+                    emitter.complete();
+                }
+            };
+
+            // Hands the client its id before the first progress report, which can be a model load away
+            emitter.next(ServerSentEvent.builder("0").id(generationId).build());
+
+            Optional<SimilarDesign> reusable = reusableDesign(prompt, style, gender, seed);
+            if (reusable.isPresent()) {
+                listener.onProgress("100");
+                listener.onResult(reusable.get().design().getImageUrl());
+                listener.onComplete();
+                return;
+            }
+            if (seed == null && deduplicator.mode() == DesignDeduplicator.Mode.OFFER) {
+                // A named event, so clients that only listen for messages are unaffected
+                findSimilarDesign(prompt, style, gender)
+                        .ifPresent(similar -> emitter.next(similarEvent(generationId, similar)));
+            }
+
+            try {
+                Files.createDirectories(Paths.get(outputDir));
+                generate(prompt, style, gender, effectiveSeed, listener, cancellation);
+            } catch (IOException e) {
+                log.error("Error in generateClothingDesignStream", e);
+                listener.onError(e.getMessage());
+                listener.onComplete();
+            }
         }, FluxSink.OverflowStrategy.BUFFER);
     }
+
+    private ServerSentEvent<String> similarEvent(String generationId, SimilarDesign similar) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("id", similar.design().getId());
+        data.put("imageUrl", similar.design().getImageUrl());
+        data.put("prompt", similar.design().getPrompt());
+        data.put("similarity", similar.similarity());
+        try {
+            return ServerSentEvent.builder(objectMapper.writeValueAsString(data))
+                    .event("similar").id(generationId).build();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialise similar design", e);
+        }
+    }
+
+    /**
+     * Cancels a streamed generation by the id carried on its events.
+     *
+     * @return false if no such stream is running
+     */
+    public boolean cancelGeneration(String generationId) {
+        GenerationCancellation cancellation = activeStreams.get(generationId);
+        if (cancellation == null || !cancellation.cancel()) {
+            return false;
+        }
+        log.info("Cancelled generation {} on request", generationId);
+        metrics.cancelled("generate-clothing", "request");
+        return true;
+    }
+
+    /**
+     * Only a seeded generation is reproducible, so only those go through the
+     * cache and share in-flight runs. Without a seed every request draws a new
+     * random one and gets a new image.
+     */
+    private void generate(String prompt, String style, String gender, Long seed, GenerationListener listener,
+                          GenerationCancellation cancellation) throws IOException {
+        if (seed == null) {
+            startWhenPermitted(prompt, style, gender, ThreadLocalRandom.current().nextLong(1L << 32), listener,
+                    cancellation);
+            return;
+        }
+        generationCache.generate(GenerationCache.key(prompt, style, gender, seed), listener, cancellation,
+                (l, c) -> startWhenPermitted(prompt, style, gender, seed, l, c));
+    }
+
+    /**
+     * Every entry point (synchronous, streamed and queued jobs) comes through here,
+     * so at most {@code ai.jobs.max-concurrent} generations run on the node at once.
+     * The wait for a permit happens on a virtual thread and ends early if the
+     * generation is cancelled. The permit is held until the generation completes
+     * or is cancelled.
+     */
+    private void startWhenPermitted(String prompt, String style, String gender, long seed,
+                                    GenerationListener listener, GenerationCancellation cancellation) {
+        processIoExecutor.execute(() -> {
+            try {
+                if (!acquirePermit(cancellation)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            AtomicBoolean held = new AtomicBoolean(true);
+            Runnable release = () -> {
+                if (held.compareAndSet(true, false)) {
+                    generationPermits.release();
+                }
+            };
+            cancellation.onCancel(release);
+            GenerationListener releasing = new GenerationListener() {
+                @Override
+                public void onProgress(String percent) {
+                    listener.onProgress(percent);
+                }
+
+                @Override
+                public void onResult(String imageUrl) {
+                    listener.onResult(imageUrl);
+                }
+
+                @Override
+                public void onError(String message) {
+                    listener.onError(message);
+                }
+
+                @Override
+                public void onComplete() {
+                    release.run();
+                    listener.onComplete();
+                }
+            };
+            try {
+                startGeneration(prompt, style, gender, seed, releasing, cancellation);
+            } catch (IOException | RuntimeException e) {
+                log.error("Could not start generation", e);
+                releasing.onError(e.getMessage());
+                releasing.onComplete();
+            }
+        });
+    }
+
+    private boolean acquirePermit(GenerationCancellation cancellation) throws InterruptedException {
+        if (generationPermits.tryAcquire()) {
+            return true;
+        }
+        log.info("Generation waiting for a free slot");
+        while (!cancellation.isCancelled()) {
+            if (generationPermits.tryAcquire(500, TimeUnit.MILLISECONDS)) {
+                if (cancellation.isCancelled()) {
+                    generationPermits.release();
+                    return false;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void startGeneration(String prompt, String style, String gender, long seed, GenerationListener listener,
+                                 GenerationCancellation cancellation) throws IOException {
+        if (cancellation.isCancelled()) {
+            return;
+        }
+        GenerationListener storing = storeResult(listener, cancellation);
+        if (diffusionWorker.isEnabled()) {
+            String requestId = diffusionWorker.submit(prompt, style, gender, seed, outputDir, storing);
+            cancellation.onCancel(() -> diffusionWorker.cancel(requestId));
+        } else {
+            runGenerationScript(prompt, style, gender, seed, storing, cancellation);
+        }
+    }
+
+    /**
+     * The scripts report the local path of the image they wrote; move it into
+     * the blob store and pass its URL on instead. Images finished after a
+     * cancellation are deleted rather than stored.
+     */
+    private GenerationListener storeResult(GenerationListener listener, GenerationCancellation cancellation) {
+        return new GenerationListener() {
+            @Override
+            public void onProgress(String percent) {
+                listener.onProgress(percent);
+            }
+
+            @Override
+            public void onResult(String imagePath) {
+                if (cancellation.isCancelled()) {
+                    deleteQuietly(Paths.get(imagePath));
+                    return;
+                }
+                try {
+                    long storing = System.nanoTime();
+                    String key = blobStore.putFile(Paths.get(imagePath), "png");
+                    metrics.recordStage("generate-clothing", "store", storing);
+                    listener.onResult(blobStore.url(key));
+                } catch (IOException | RuntimeException e) {
+                    log.error("Could not store generated image {}", imagePath, e);
+                    listener.onError("Could not store generated image: " + e.getMessage());
+                }
+            }
+
+            @Override
+            public void onError(String message) {
+                listener.onError(message);
+            }
+
+            @Override
+            public void onComplete() {
+                listener.onComplete();
+            }
+        };
+    }
+
+    /**
+     * Waits for the generation's image URL. A caller that gives up (timeout or
+     * interrupt) cancels its subscription too, so a generation nobody else is
+     * waiting for stops instead of holding the GPU for an unwanted result.
+     */
+    private String awaitImageUrl(CompletableFuture<String> result, GenerationCancellation cancellation)
+            throws IOException {
+        try {
+            return result.get(generationTimeoutMinutes, TimeUnit.MINUTES);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (TimeoutException e) {
+            if (cancellation.cancel()) {
+                metrics.cancelled("generate-clothing", "timeout");
+            }
+            throw new IOException("Generation timed out after " + generationTimeoutMinutes + " minutes");
+        } catch (InterruptedException e) {
+            if (cancellation.cancel()) {
+                metrics.cancelled("generate-clothing", "interrupted");
+            }
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for generation", e);
+        }
+    }
+
+    /**
+     * Runs generate_clothing.py as a one-off process, used when the resident worker is disabled.
+     * Blocks until the script exits. The script writes into its own scratch directory,
+     * removed afterwards, so a cancelled run leaves no partial image behind.
+     */
+    private void runGenerationScript(String prompt, String style, String gender, long seed, GenerationListener listener,
+                                     GenerationCancellation cancellation) throws IOException {
+        Path workDir = Files.createDirectories(Paths.get(outputDir, UUID.randomUUID().toString()));
+        ProcessBuilder pb = new ProcessBuilder(
+                pythonExecutable,
+                pythonScriptPath,
+                "\"" + prompt + "\"",
+                style,
+                gender,
+                workDir.toString(),
+                String.valueOf(seed)
+        );
+
+        // Redirect error stream to standard output
+        pb.redirectErrorStream(true);
+
+        PythonProcessMetrics.TrackedProcess tracked;
+        try {
+            tracked = metrics.start("generate-clothing", pb);
+        } catch (IOException e) {
+            deleteQuietly(workDir);
+            throw e;
+        }
+        Process process = tracked.process();
+        cancellation.onCancel(() -> processIoExecutor.execute(() -> destroyTree(process)));
+
+        // Capture and log Python output in real-time
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream()))) {
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                tracked.outputSeen();
+                log.info("Python Output: {}", line);
+                handleScriptLine(line, listener);
+            }
+            int exitCode = process.waitFor();
+            if (exitCode != 0 && !cancellation.isCancelled()) {
+                listener.onError("Generation script exited with code " + exitCode);
+            }
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            listener.onError("Interrupted");
+        } finally {
+            deleteQuietly(workDir);
+        }
+        if (cancellation.isCancelled()) {
+            log.info("Generation script (pid {}) cancelled", process.pid());
+        }
+        listener.onComplete();
+    }
+
+    /** Turns a {@code PROGRESS:}, {@code FILE:} or {@code ERROR} line of the script into a listener event. */
+    static void handleScriptLine(String line, GenerationListener listener) {
+        if (line.startsWith("PROGRESS:")) {
+            listener.onProgress(line.replace("PROGRESS:", "").trim());
+        } else if (line.startsWith("FILE:")) {
+            listener.onResult(line.substring("FILE:".length()).trim());
+        } else if (line.startsWith("ERROR")) {
+            listener.onError(line.replaceFirst("^ERROR:?\\s*", ""));
+        }
+    }
+
+    /** diffusers and torch may fork helpers, so children go down with the script. */
+    private void destroyTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroy);
+        process.destroy();
+        try {
+            if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (IOException e) {
+            log.warn("Could not delete generation output {}: {}", path, e.getMessage());
+        }
+    }
 }
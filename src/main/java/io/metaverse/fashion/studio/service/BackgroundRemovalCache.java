@@ -0,0 +1,143 @@
+package io.metaverse.fashion.studio.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache of background-removed PNGs, keyed by the SHA-256 of the source image
+ * bytes, plus the validators (ETag / Last-Modified) last seen for recently
+ * used source URLs so unchanged images can be revalidated without a download.
+ * A URL's validators are forgotten when its result is evicted.
+ *
+ * The PNGs themselves live in the {@link CacheBlobStore} and are indexed by a
+ * {@link CacheIndex} bounded by their total size. Work for the same key (URL
+ * or content hash) that is already running is joined rather than repeated.
+ */
+@Component
+public class BackgroundRemovalCache {
+
+    private static final Logger log = LoggerFactory.getLogger(BackgroundRemovalCache.class);
+
+    /** Validators and content hash last seen for a source URL. */
+    public record UrlEntry(String etag, String lastModified, String sha256) {
+    }
+
+    private final CacheBlobStore blobStore;
+    private final CacheIndex index;
+    // Source URLs come from clients, so the map is an LRU bounded by image.bg-cache.max-urls.
+    // Evictions clear hints under the index lock, so this lock is always taken after it
+    private final LinkedHashMap<String, UrlEntry> urls;
+    private final ReentrantLock urlLock;
+
+    public BackgroundRemovalCache(CacheBlobStore blobStore,
+                                  @Value("${image.bg-cache.index-file:data/bg-cache-index.txt}") String indexFile,
+                                  @Value("${image.bg-cache.max-bytes:536870912}") long maxBytes,
+                                  @Value("${image.bg-cache.max-urls:10000}") int maxUrls) {
+        this.blobStore = blobStore;
+        LinkedHashMap<String, UrlEntry> urls = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UrlEntry> eldest) {
+                return size() > maxUrls;
+            }
+        };
+        ReentrantLock urlLock = new ReentrantLock();
+        this.urls = urls;
+        this.urlLock = urlLock;
+        this.index = new CacheIndex("Background removal cache", indexFile, maxBytes, blobStore::exists,
+                (sha256, blobKey, lastReference) -> {
+                    // A revalidation hint is useless once the result it leads to is gone
+                    urlLock.lock();
+                    try {
+                        urls.values().removeIf(url -> url.sha256().equals(sha256));
+                    } finally {
+                        urlLock.unlock();
+                    }
+                    // Two sources can produce identical PNGs; keep the blob while another entry uses it
+                    if (lastReference) {
+                        try {
+                            blobStore.delete(blobKey);
+                        } catch (IOException e) {
+                            log.warn("Could not evict {}: {}", sha256, e.getMessage());
+                        }
+                    }
+                });
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        index.load();
+    }
+
+    public static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /** Public URL of a cached PNG. */
+    public String url(String blobKey) {
+        return blobStore.url(blobKey);
+    }
+
+    public UrlEntry getUrl(String url) {
+        urlLock.lock();
+        try {
+            return urls.get(url);
+        } finally {
+            urlLock.unlock();
+        }
+    }
+
+    public void putUrl(String url, UrlEntry entry) {
+        urlLock.lock();
+        try {
+            urls.put(url, entry);
+        } finally {
+            urlLock.unlock();
+        }
+    }
+
+    /**
+     * @return the blob key of the cached PNG for this content hash, or null if
+     *         it is not (or no longer) cached
+     */
+    public String get(String sha256) {
+        return index.get(sha256);
+    }
+
+    /**
+     * Moves a freshly processed PNG into the blob store and evicts older
+     * entries if the cache is over its size budget.
+     *
+     * @return the blob key
+     */
+    public String put(String sha256, Path processed) throws IOException {
+        long size = Files.size(processed);
+        // Stored by the index under its lock, so an eviction cannot delete an
+        // identical blob between storing this one and recording its entry
+        return index.put(sha256, () -> new CacheIndex.Entry(blobStore.putFile(processed, "png"), size));
+    }
+
+    /**
+     * Runs the loader unless a load for the same key is already running, in
+     * which case its result is shared.
+     */
+    public <T> T coalesce(String key, CacheIndex.Loader<T> loader) throws IOException, InterruptedException {
+        return index.coalesce(key, loader);
+    }
+}
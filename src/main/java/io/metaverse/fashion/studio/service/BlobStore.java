@@ -0,0 +1,82 @@
+package io.metaverse.fashion.studio.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Storage for generated and uploaded images. Blobs are addressed by the
+ * SHA-256 of their content plus a file extension ({@code <sha256>.<ext>}), so
+ * identical content is stored once and a key never changes meaning, which
+ * lets {@link #url(String)} be cached forever by clients.
+ */
+public interface BlobStore {
+
+    /**
+     * Extensions a client-supplied filename may give a blob. Anything else
+     * falls back to the caller's default, so an upload named {@code x.html} or
+     * {@code x.svg} is never stored, and served, as markup.
+     */
+    Set<String> IMAGE_EXTENSIONS = Set.of("png", "jpg", "jpeg", "webp");
+
+    /**
+     * Streams content into the store without buffering it in memory.
+     *
+     * @return the blob key
+     */
+    String put(InputStream content, String extension) throws IOException;
+
+    /**
+     * Moves a file into the store. The file is consumed: afterwards it either
+     * lives in the store or, if the content was already stored, is deleted.
+     *
+     * @return the blob key
+     */
+    String putFile(Path file, String extension) throws IOException;
+
+    boolean exists(String key);
+
+    InputStream open(String key) throws IOException;
+
+    long size(String key) throws IOException;
+
+    /**
+     * A local file holding the blob, for tools that only take paths (the
+     * Python scripts). The file must not be modified.
+     */
+    Path localPath(String key) throws IOException;
+
+    boolean delete(String key) throws IOException;
+
+    /**
+     * Stable public URL of the blob. Always absolute, since clients on other
+     * origins (the web frontend) load it directly.
+     */
+    String url(String key);
+
+    /** Validates a key received from a client, e.g. through a blob URL. */
+    static boolean isValidKey(String key) {
+        return key != null && key.matches("[0-9a-f]{64}(\\.[a-z0-9]{1,8})?");
+    }
+
+    /** True for keys of image blobs, the only ones served through {@link #url(String)}. */
+    static boolean isImageKey(String key) {
+        return isValidKey(key) && IMAGE_EXTENSIONS.contains(key.substring(key.lastIndexOf('.') + 1));
+    }
+
+    /** The image extension of an uploaded file's name, or {@code fallback} if it has none. */
+    static String extensionOf(String filename, String fallback) {
+        if (filename != null) {
+            int dot = filename.lastIndexOf('.');
+            if (dot >= 0 && dot < filename.length() - 1) {
+                String extension = filename.substring(dot + 1).toLowerCase(Locale.ROOT);
+                if (IMAGE_EXTENSIONS.contains(extension)) {
+                    return extension;
+                }
+            }
+        }
+        return fallback;
+    }
+}
@@ -0,0 +1,25 @@
+package io.metaverse.fashion.studio.service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Finds the torso in a photo, i.e. the rectangle the garment is composited
+ * into. The implementation is chosen with {@code tryon.detector}.
+ */
+public interface BodyRegionDetector {
+
+    /** Torso rectangle in pixels, {@code x2}/{@code y2} exclusive. */
+    record Region(int x1, int y1, int x2, int y2) {
+        public int width() {
+            return x2 - x1;
+        }
+
+        public int height() {
+            return y2 - y1;
+        }
+    }
+
+    Optional<Region> detect(BufferedImage image) throws IOException;
+}
@@ -0,0 +1,58 @@
+package io.metaverse.fashion.studio.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Content-addressed store for the outputs of the result caches
+ * ({@link BackgroundRemovalCache}, {@link TryOnResultCache}), which are deleted
+ * again on eviction. Keeping them apart from the shared {@link BlobStore} means
+ * an eviction never removes a blob another subsystem stored with the same
+ * content, and lets them be served from {@code <blob.store.base-url>cache/}
+ * without the immutable caching of permanent blobs.
+ *
+ * The two caches share this store; their outputs never collide, since
+ * background-removed images are PNGs and try-on composites JPEGs.
+ */
+@Component
+public class CacheBlobStore {
+
+    private final LocalBlobStore store;
+
+    public CacheBlobStore(@Value("${blob.cache.dir:data/cache-blobs}") String directory,
+                          @Value("${blob.store.base-url}") String baseUrl) throws IOException {
+        this.store = new LocalBlobStore(directory, (baseUrl.endsWith("/") ? baseUrl : baseUrl + "/") + "cache/");
+    }
+
+    public String put(InputStream content, String extension) throws IOException {
+        return store.put(content, extension);
+    }
+
+    public String putFile(Path file, String extension) throws IOException {
+        return store.putFile(file, extension);
+    }
+
+    public boolean exists(String key) {
+        return store.exists(key);
+    }
+
+    public long size(String key) throws IOException {
+        return store.size(key);
+    }
+
+    public Path localPath(String key) throws IOException {
+        return store.localPath(key);
+    }
+
+    public boolean delete(String key) throws IOException {
+        return store.delete(key);
+    }
+
+    public String url(String key) {
+        return store.url(key);
+    }
+}
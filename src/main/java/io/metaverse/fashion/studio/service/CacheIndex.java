@@ -0,0 +1,262 @@
+package io.metaverse.fashion.studio.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Persistent LRU index shared by the result caches ({@link BackgroundRemovalCache},
+ * {@link TryOnResultCache}, {@link GenerationCache}). Each entry maps a cache key
+ * to a value (a blob key or image URL) and a weight, and the least recently used
+ * entries are evicted once the total weight exceeds the budget: bytes for cached
+ * blobs, 1 per entry for a count limit.
+ *
+ * The index file is append-only. {@code <key> <value> <weight>} records an entry
+ * and {@code <key> -} its removal; replaying it on {@link #load()} (later lines
+ * win) restores the last known state and use order, and the file is then
+ * compacted to the retained entries. The owning cache decides, through the
+ * predicate and listener it passes in, whether a value is still usable and what
+ * happens to it when evicted.
+ *
+ * State is guarded by a {@link ReentrantLock} rather than {@code synchronized}:
+ * stores, evictions and index appends do file I/O while holding it, and callers
+ * run on virtual threads, which would pin their carrier thread if they blocked
+ * inside a monitor.
+ */
+public class CacheIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheIndex.class);
+
+    private static final String REMOVED = "-";
+
+    public record Entry(String value, long weight) {
+    }
+
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws IOException, InterruptedException;
+    }
+
+    @FunctionalInterface
+    public interface Store {
+        /** Produces the entry to record; runs under the index lock. */
+        Entry store() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface EvictionListener {
+        /**
+         * Called under the index lock for each entry evicted to stay within the
+         * budget. {@code lastReference} is false while another entry still maps
+         * to the same value, e.g. two sources that produced identical blobs.
+         */
+        void evicted(String key, String value, boolean lastReference);
+    }
+
+    private final String name;
+    private final String indexFile;
+    private final long budget;
+    private final Predicate<String> present;
+    private final EvictionListener listener;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private long totalWeight;
+
+    /**
+     * @param name     used in log messages
+     * @param present  whether a value can still be served; entries whose value is gone are dropped
+     * @param listener told about evicted entries, e.g. to delete their blobs
+     */
+    public CacheIndex(String name, String indexFile, long budget, Predicate<String> present,
+                      EvictionListener listener) {
+        this.name = name;
+        this.indexFile = indexFile;
+        this.budget = budget;
+        this.present = present;
+        this.listener = listener;
+    }
+
+    public void load() throws IOException {
+        Path index = Paths.get(indexFile);
+        lock.lock();
+        try {
+            if (Files.exists(index)) {
+                for (String line : Files.readAllLines(index, StandardCharsets.UTF_8)) {
+                    String[] parts = line.split(" ");
+                    if (parts.length == 3 && present.test(parts[1])) {
+                        record(parts[0], new Entry(parts[1], Long.parseLong(parts[2])));
+                    } else if (parts.length >= 2) {
+                        remove(parts[0]);
+                    }
+                }
+            }
+            evict();
+            rewrite(index);
+            log.info("{} holds {} entries, total weight {}", name, entries.size(), totalWeight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return the value for this key, or null if it is not (or no longer) cached */
+    public String get(String key) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (!present.test(entry.value())) {
+                remove(key);
+                append(key + " " + REMOVED);
+                return null;
+            }
+            return entry.value();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(String key, String value, long weight) {
+        try {
+            put(key, () -> new Entry(value, weight));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Records the entry produced by {@code store}, evicting older entries if the
+     * index is over budget. The store runs under the lock, so an eviction cannot
+     * remove an identical value between it being stored and recorded.
+     *
+     * @return the value recorded
+     */
+    public String put(String key, Store store) throws IOException {
+        lock.lock();
+        try {
+            Entry entry = store.store();
+            record(key, entry);
+            append(key + " " + entry.value() + " " + entry.weight());
+            evict();
+            return entry.value();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Total weight of the retained entries, e.g. bytes for blob caches. */
+    public long weight() {
+        lock.lock();
+        try {
+            return totalWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the loader unless a load for the same key is already running, in
+     * which case its result is shared.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T coalesce(String key, Loader<T> loader) throws IOException, InterruptedException {
+        CompletableFuture<T> created = new CompletableFuture<>();
+        CompletableFuture<T> running = (CompletableFuture<T>) inFlight.putIfAbsent(key, created);
+        if (running == null) {
+            try {
+                created.complete(loader.load());
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                created.completeExceptionally(e);
+            } finally {
+                inFlight.remove(key, created);
+            }
+            running = created;
+        }
+
+        try {
+            return running.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof InterruptedException ie) {
+                throw ie;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private void record(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        totalWeight += entry.weight() - (previous == null ? 0 : previous.weight());
+    }
+
+    private void remove(String key) {
+        Entry previous = entries.remove(key);
+        totalWeight -= previous == null ? 0 : previous.weight();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (totalWeight > budget && eldest.hasNext()) {
+            Map.Entry<String, Entry> evicted = eldest.next();
+            String value = evicted.getValue().value();
+            totalWeight -= evicted.getValue().weight();
+            eldest.remove();
+            append(evicted.getKey() + " " + REMOVED);
+            listener.evicted(evicted.getKey(), value,
+                    entries.values().stream().noneMatch(e -> e.value().equals(value)));
+        }
+    }
+
+    private void append(String line) {
+        Path index = Paths.get(indexFile);
+        try {
+            Files.createDirectories(index.toAbsolutePath().getParent());
+            Files.writeString(index, line + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.warn("Could not update {} index: {}", name, e.getMessage());
+        }
+    }
+
+    private void rewrite(Path index) throws IOException {
+        Files.createDirectories(index.toAbsolutePath().getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(index, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                writer.write(entry.getKey() + " " + entry.getValue().value() + " " + entry.getValue().weight());
+                writer.newLine();
+            }
+        }
+    }
+}
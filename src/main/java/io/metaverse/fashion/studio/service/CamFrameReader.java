@@ -0,0 +1,97 @@
+package io.metaverse.fashion.studio.service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the length-prefixed frames written by cam_virtual_tryon_service.py.
+ *
+ * Each frame is a 13 byte big-endian header (type byte, capture timestamp in
+ * epoch microseconds, payload length) followed by the payload: raw JPEG bytes
+ * for {@link #FRAME}, UTF-8 text for {@link #ERROR} and {@link #STATUS}.
+ * Both buffers are direct and reused; the payload buffer only grows when a
+ * frame is larger than any seen before, so steady-state reads allocate nothing.
+ */
+public final class CamFrameReader {
+
+    public static final byte FRAME = 1;
+    public static final byte ERROR = 2;
+    public static final byte STATUS = 3;
+
+    private static final int HEADER_SIZE = 13;
+    private static final int MAX_PAYLOAD = 16 * 1024 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocateDirect(HEADER_SIZE);
+    private ByteBuffer payload = ByteBuffer.allocateDirect(256 * 1024);
+
+    private byte type;
+    private long timestampMicros;
+
+    public CamFrameReader(InputStream in) {
+        this.channel = Channels.newChannel(in);
+    }
+
+    /**
+     * Blocks until the next frame has been read completely.
+     *
+     * @return false once the process has closed its output
+     */
+    public boolean next() throws IOException {
+        header.clear();
+        if (!fill(header, true)) {
+            return false;
+        }
+        header.flip();
+        type = header.get();
+        timestampMicros = header.getLong();
+        int length = header.getInt();
+        if (length < 0 || length > MAX_PAYLOAD) {
+            throw new IOException("Invalid frame length " + length);
+        }
+
+        if (payload.capacity() < length) {
+            payload = ByteBuffer.allocateDirect(Integer.highestOneBit(length) << 1);
+        }
+        payload.clear().limit(length);
+        fill(payload, false);
+        payload.flip();
+        return true;
+    }
+
+    private boolean fill(ByteBuffer buffer, boolean eofAllowed) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (eofAllowed && buffer.position() == 0) {
+                    return false;
+                }
+                throw new EOFException("Stream ended mid-frame");
+            }
+        }
+        return true;
+    }
+
+    public byte type() {
+        return type;
+    }
+
+    public long timestampMicros() {
+        return timestampMicros;
+    }
+
+    /** Payload of the current frame, positioned at 0 with the limit at its length. Valid until the next read. */
+    public ByteBuffer payload() {
+        return payload;
+    }
+
+    public String payloadAsString() {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,127 @@
+package io.metaverse.fashion.studio.service;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One webcam try-on: its cam_virtual_tryon_service.py process, the STOMP
+ * destination its frames are published to, the subscriptions to that
+ * destination and the delivery counters reported by the stats endpoint.
+ */
+public class CamTryOnSession {
+
+    // One WebSocket may hold several subscriptions (tabs sharing a connection, resubscribes)
+    private record SubscriptionKey(String webSocketSessionId, String subscriptionId) {
+    }
+
+    private final String id;
+    private final Process process;
+    private final long createdAt = System.currentTimeMillis();
+    private final Map<SubscriptionKey, FrameSubscriber> subscribers = new ConcurrentHashMap<>();
+    private volatile long lastActivity = createdAt;
+    private volatile boolean everSubscribed;
+
+    private final LongAdder framesCaptured = new LongAdder();
+    private final LongAdder framesSent = new LongAdder();
+    private final LongAdder framesDropped = new LongAdder();
+    private final LongAdder acks = new LongAdder();
+    private final LongAdder latencyTotalMs = new LongAdder();
+    private final LongAccumulator latencyMaxMs = new LongAccumulator(Math::max, 0);
+    private final AtomicLong latencyLastMs = new AtomicLong();
+
+    CamTryOnSession(String id, Process process) {
+        this.id = id;
+        this.process = process;
+    }
+
+    public String getId() { return id; }
+    public String getDestination() { return "/topic/video-feed/" + id; }
+    public long getCreatedAt() { return createdAt; }
+    public long getLastActivity() { return lastActivity; }
+    public int getSubscriberCount() { return subscribers.size(); }
+
+    Process process() { return process; }
+
+    Collection<FrameSubscriber> subscribers() {
+        return subscribers.values();
+    }
+
+    void touch() {
+        lastActivity = System.currentTimeMillis();
+    }
+
+    void addSubscriber(FrameSubscriber subscriber) {
+        subscribers.put(new SubscriptionKey(subscriber.webSocketSessionId(), subscriber.subscriptionId()), subscriber);
+        everSubscribed = true;
+        touch();
+    }
+
+    /**
+     * @param subscriptionId the subscription, or null for every subscription of that WebSocket session
+     */
+    List<FrameSubscriber> subscribers(String webSocketSessionId, String subscriptionId) {
+        if (subscriptionId != null) {
+            FrameSubscriber subscriber = subscribers.get(new SubscriptionKey(webSocketSessionId, subscriptionId));
+            return subscriber == null ? List.of() : List.of(subscriber);
+        }
+        return subscribers.values().stream()
+                .filter(subscriber -> subscriber.webSocketSessionId().equals(webSocketSessionId))
+                .toList();
+    }
+
+    /**
+     * @param subscriptionId the subscription to drop, or null for every subscription of that WebSocket session
+     * @return true once the last subscriber of a session that had subscribers has gone
+     */
+    boolean removeSubscriber(String webSocketSessionId, String subscriptionId) {
+        boolean removed;
+        if (subscriptionId != null) {
+            removed = subscribers.remove(new SubscriptionKey(webSocketSessionId, subscriptionId)) != null;
+        } else {
+            removed = subscribers.keySet().removeIf(key -> key.webSocketSessionId().equals(webSocketSessionId));
+        }
+        return removed && everSubscribed && subscribers.isEmpty();
+    }
+
+    void frameCaptured() {
+        framesCaptured.increment();
+    }
+
+    void frameOffered(boolean dropped) {
+        framesSent.increment();
+        if (dropped) {
+            framesDropped.increment();
+        }
+    }
+
+    void frameAcked(long latencyMs) {
+        acks.increment();
+        touch();
+        if (latencyMs >= 0) {
+            latencyTotalMs.add(latencyMs);
+            latencyMaxMs.accumulate(latencyMs);
+            latencyLastMs.set(latencyMs);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long ackCount = acks.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessionId", id);
+        stats.put("subscribers", subscribers.size());
+        stats.put("framesCaptured", framesCaptured.sum());
+        stats.put("framesOffered", framesSent.sum());
+        stats.put("framesDropped", framesDropped.sum());
+        stats.put("acks", ackCount);
+        stats.put("latencyAvgMs", ackCount == 0 ? 0 : latencyTotalMs.sum() / ackCount);
+        stats.put("latencyMaxMs", latencyMaxMs.get());
+        stats.put("latencyLastMs", latencyLastMs.get());
+        return stats;
+    }
+}
@@ -1,94 +1,390 @@
 package io.metaverse.fashion.studio.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Manages concurrent webcam try-on sessions. Each session runs its own
+ * cam_virtual_tryon_service.py process and publishes to its own
+ * {@code /topic/video-feed/{sessionId}} destination. Sessions end when stopped
+ * explicitly, when their last WebSocket subscriber disconnects, when they see
+ * no client activity for the idle timeout, or when the script exits.
+ *
+ * Frames are delivered to each subscription individually through a
+ * {@link FrameSubscriber}, which keeps only the newest undelivered frame, so
+ * a slow client drops stale frames instead of queueing them on the node.
+ * Clients may also acknowledge frames by sending the frame's {@code ts} to
+ * {@code /app/video-feed/{sessionId}/ack}, with a {@code subscription} header
+ * when one connection holds several subscriptions; acks feed the latency
+ * stats and pace delivery to what the client has actually rendered.
+ */
 @Service
 public class CamVirtualTryOnService {
 
+    private static final Logger log = LoggerFactory.getLogger(CamVirtualTryOnService.class);
+
+    private static final byte[] FRAME_PREFIX = "{\"frame\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FRAME_TS = "\",\"ts\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BASE64 =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+
     @Value("${python.camscript.path}")
     private String pythonScriptPath;
 
-    @Value("${upload.directory}")
-    private String uploadDirectory;
+    @Value("${python.executable:python}")
+    private String pythonExecutable;
+
+    @Value("${cam.sessions.max:8}")
+    private int maxSessions;
+
+    @Value("${cam.sessions.idle-timeout-seconds:120}")
+    private long idleTimeoutSeconds;
+
+    @Value("${cam.frames.ack-timeout-ms:1000}")
+    private long ackTimeoutMs;
+
+    private final MessageChannel clientOutboundChannel;
+    private final BlobStore blobStore;
+    private final ClothAssetBuilder clothAssetBuilder;
+    private final PythonProcessMetrics metrics;
+    private final ExecutorService processIoExecutor;
+
+    private final Map<String, CamTryOnSession> sessions = new ConcurrentHashMap<>();
+    private final ReentrantLock startLock = new ReentrantLock();
+    private final ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor();
+
+    public CamVirtualTryOnService(@Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+                                  BlobStore blobStore, ClothAssetBuilder clothAssetBuilder,
+                                  PythonProcessMetrics metrics,
+                                  @Qualifier("processIoExecutor") ExecutorService processIoExecutor) {
+        this.clientOutboundChannel = clientOutboundChannel;
+        this.blobStore = blobStore;
+        this.clothAssetBuilder = clothAssetBuilder;
+        this.metrics = metrics;
+        this.processIoExecutor = processIoExecutor;
+    }
 
-    private Process pythonProcess;
-    private final ExecutorService outputReaderExecutor = Executors.newSingleThreadExecutor();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @PostConstruct
+    public void startReaper() {
+        reaper.scheduleWithFixedDelay(this::reapIdleSessions, 30, 30, TimeUnit.SECONDS);
+    }
 
+    /**
+     * Stores the garment and preprocesses it into a cloth asset (cut-out plus
+     * prescaled pyramid), so the per-frame loop only has to resize and blend.
+     *
+     * @return the path of the asset manifest to pass to {@link #startVirtualTryOn(String)}
+     */
     public String saveClothImage(MultipartFile file) throws IOException {
-        Path uploadPath = Paths.get(uploadDirectory);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+        String key;
+        try (InputStream in = file.getInputStream()) {
+            key = blobStore.put(in, BlobStore.extensionOf(file.getOriginalFilename(), "png"));
         }
+        long building = System.nanoTime();
+        String manifestKey = clothAssetBuilder.build(key);
+        metrics.recordStage("cam-tryon", "cloth-asset", building);
+        return blobStore.localPath(manifestKey).toString();
+    }
 
-        String fileName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-        Path filePath = uploadPath.resolve(fileName);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-        return filePath.toString();
+    public CamTryOnSession startVirtualTryOn(String clothAssetPath) throws IOException {
+        startLock.lock();
+        try {
+            return startSession(clothAssetPath);
+        } finally {
+            startLock.unlock();
+        }
     }
 
-    public void startVirtualTryOn(String clothImagePath, SimpMessagingTemplate messagingTemplate)
-            throws IOException, InterruptedException {
-        stopVirtualTryOn();
+    private CamTryOnSession startSession(String clothAssetPath) throws IOException {
+        if (sessions.size() >= maxSessions) {
+            throw new IllegalStateException("Too many active try-on sessions (limit " + maxSessions + ")");
+        }
 
         ProcessBuilder processBuilder = new ProcessBuilder(
-                "python",
+                pythonExecutable,
                 pythonScriptPath,
-                "--cloth-image",
-                clothImagePath
+                "--cloth-asset",
+                clothAssetPath
         );
 
-        processBuilder.redirectErrorStream(true);
-        pythonProcess = processBuilder.start();
+        // stdout carries binary frames only, so logs must stay on their own stream
+        PythonProcessMetrics.TrackedProcess tracked = metrics.start("cam-tryon", processBuilder);
+        Process process = tracked.process();
+        CamTryOnSession session = new CamTryOnSession(UUID.randomUUID().toString(), process);
+        sessions.put(session.getId(), session);
+        log.info("Started try-on session {} (pid {}, {} active)", session.getId(), process.pid(), sessions.size());
 
-        streamProcessOutput(pythonProcess, messagingTemplate);
+        streamProcessOutput(session, tracked);
+        drainProcessLog(process);
+        return session;
     }
 
-    private void streamProcessOutput(Process process, SimpMessagingTemplate messagingTemplate) {
-        outputReaderExecutor.execute(() -> {
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    try {
-                        JsonNode jsonNode = objectMapper.readTree(line);
-                        if (jsonNode.has("type") && "frame".equals(jsonNode.get("type").asText())) {
-                            String frameData = jsonNode.get("data").asText();
-                            messagingTemplate.convertAndSend("/topic/video-feed",
-                                    Map.of("frame", frameData));
-                        }
-                    } catch (Exception e) {
-                        System.err.println("Error processing Python output: " + e.getMessage());
+    public Collection<CamTryOnSession> getSessions() {
+        return sessions.values();
+    }
+
+    public Optional<CamTryOnSession> getSession(String sessionId) {
+        return Optional.ofNullable(sessions.get(sessionId));
+    }
+
+    /**
+     * Marks the frame in flight to a subscriber as received and releases the
+     * newest pending frame, if any.
+     *
+     * @param subscriptionId the acknowledging subscription, or null for every subscription of the WebSocket session
+     * @param timestampMillis the {@code ts} of the acknowledged frame, or null if the client did not echo it
+     */
+    public void ackFrame(String sessionId, String webSocketSessionId, String subscriptionId, Long timestampMillis) {
+        CamTryOnSession session = sessions.get(sessionId);
+        if (session == null) {
+            return;
+        }
+        List<FrameSubscriber> subscribers = session.subscribers(webSocketSessionId, subscriptionId);
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        session.frameAcked(timestampMillis == null ? -1 : now - timestampMillis);
+        subscribers.forEach(subscriber -> subscriber.ack(now, ackTimeoutMs));
+    }
+
+    /**
+     * Records client activity so the session is not reaped as idle.
+     *
+     * @return false if no such session is running
+     */
+    public boolean touch(String sessionId) {
+        CamTryOnSession session = sessions.get(sessionId);
+        if (session == null) {
+            return false;
+        }
+        session.touch();
+        return true;
+    }
+
+    private void streamProcessOutput(CamTryOnSession session, PythonProcessMetrics.TrackedProcess tracked) {
+        Process process = session.process();
+        processIoExecutor.execute(() -> {
+            try (InputStream in = process.getInputStream()) {
+                CamFrameReader reader = new CamFrameReader(in);
+                while (reader.next()) {
+                    // Covers camera open and the first detection, not just interpreter start
+                    tracked.outputSeen();
+                    switch (reader.type()) {
+                        case CamFrameReader.FRAME -> publishFrame(session, reader);
+                        case CamFrameReader.ERROR -> log.error("Try-on script error: {}", reader.payloadAsString());
+                        case CamFrameReader.STATUS -> log.info("Try-on script status: {}", reader.payloadAsString());
+                        default -> log.warn("Ignoring unknown frame type {}", reader.type());
                     }
                 }
             } catch (IOException e) {
-                System.err.println("Error reading Python output: " + e.getMessage());
+                log.error("Error reading Python output: {}", e.getMessage());
             } finally {
-                System.out.println("Python process output stream closed");
+                log.info("Python process output stream closed for session {}", session.getId());
+                stopVirtualTryOn(session.getId());
+            }
+        });
+    }
+
+    private void drainProcessLog(Process process) {
+        processIoExecutor.execute(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    log.info("Python Output: {}", line);
+                }
+            } catch (IOException e) {
+                log.debug("Python log stream closed: {}", e.getMessage());
             }
         });
     }
 
-    public void stopVirtualTryOn() {
-        if (pythonProcess != null && pythonProcess.isAlive()) {
-            pythonProcess.destroy();
+    private void publishFrame(CamTryOnSession session, CamFrameReader reader) {
+        session.frameCaptured();
+        metrics.camFrame(reader.payload().remaining());
+        if (session.getSubscriberCount() == 0) {
+            return;
+        }
+
+        byte[] json = toFrameJson(reader.payload(), reader.timestampMicros() / 1000);
+        long now = System.currentTimeMillis();
+        for (FrameSubscriber subscriber : session.subscribers()) {
+            Message<byte[]> message = toFrameMessage(json, session.getDestination(), subscriber,
+                    () -> subscriber.sent(System.currentTimeMillis(), ackTimeoutMs));
+            boolean dropped = subscriber.offer(message, now, ackTimeoutMs);
+            session.frameOffered(dropped);
+            if (dropped) {
+                metrics.camFrameDropped();
+            }
+        }
+    }
+
+    /**
+     * Wraps a JPEG as the {"frame": base64, "ts": captureMillis} JSON the clients
+     * subscribe to. The JPEG is encoded straight into the final array, which is
+     * shared by every subscriber's message.
+     */
+    static byte[] toFrameJson(ByteBuffer jpeg, long timestampMillis) {
+        byte[] ts = Long.toString(timestampMillis).getBytes(StandardCharsets.US_ASCII);
+        int encodedLength = 4 * ((jpeg.remaining() + 2) / 3);
+        byte[] json = new byte[FRAME_PREFIX.length + encodedLength + FRAME_TS.length + ts.length + 1];
+        System.arraycopy(FRAME_PREFIX, 0, json, 0, FRAME_PREFIX.length);
+        int out = encodeBase64(jpeg, json, FRAME_PREFIX.length);
+        System.arraycopy(FRAME_TS, 0, json, out, FRAME_TS.length);
+        out += FRAME_TS.length;
+        System.arraycopy(ts, 0, json, out, ts.length);
+        json[out + ts.length] = '}';
+        return json;
+    }
+
+    /**
+     * @param onSent run by {@link FrameDeliveryInterceptor} once the message is written to the WebSocket
+     */
+    static Message<byte[]> toFrameMessage(byte[] json, String destination, FrameSubscriber subscriber,
+                                          Runnable onSent) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(subscriber.webSocketSessionId());
+        headers.setSubscriptionId(subscriber.subscriptionId());
+        headers.setDestination(destination);
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        headers.setHeader(FrameDeliveryInterceptor.SENT_CALLBACK_HEADER, onSent);
+        return MessageBuilder.createMessage(json, headers.getMessageHeaders());
+    }
+
+    private static int encodeBase64(ByteBuffer src, byte[] dst, int out) {
+        int start = src.position();
+        int end = src.limit();
+        int i = start;
+        for (; i + 2 < end; i += 3) {
+            int bits = (src.get(i) & 0xff) << 16 | (src.get(i + 1) & 0xff) << 8 | (src.get(i + 2) & 0xff);
+            dst[out++] = BASE64[bits >>> 18 & 0x3f];
+            dst[out++] = BASE64[bits >>> 12 & 0x3f];
+            dst[out++] = BASE64[bits >>> 6 & 0x3f];
+            dst[out++] = BASE64[bits & 0x3f];
+        }
+        int remaining = end - i;
+        if (remaining > 0) {
+            int bits = (src.get(i) & 0xff) << 16 | (remaining == 2 ? (src.get(i + 1) & 0xff) << 8 : 0);
+            dst[out++] = BASE64[bits >>> 18 & 0x3f];
+            dst[out++] = BASE64[bits >>> 12 & 0x3f];
+            dst[out++] = remaining == 2 ? BASE64[bits >>> 6 & 0x3f] : (byte) '=';
+            dst[out++] = '=';
+        }
+        return out;
+    }
+
+    /**
+     * @return false if no such session is running
+     */
+    public boolean stopVirtualTryOn(String sessionId) {
+        CamTryOnSession session = sessions.remove(sessionId);
+        if (session == null) {
+            return false;
+        }
+        Process process = session.process();
+        if (process.isAlive()) {
+            process.destroy();
             try {
-                pythonProcess.waitFor();
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
             } catch (InterruptedException e) {
+                process.destroyForcibly();
                 Thread.currentThread().interrupt();
             }
         }
+        log.info("Stopped try-on session {} ({} active)", sessionId, sessions.size());
+        return true;
+    }
+
+    private void reapIdleSessions() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(idleTimeoutSeconds);
+        sessions.values().stream()
+                // Watched sessions are torn down on disconnect instead
+                .filter(session -> session.getSubscriberCount() == 0 && session.getLastActivity() < cutoff)
+                .map(CamTryOnSession::getId)
+                .toList()
+                .forEach(id -> {
+                    log.info("Reaping idle try-on session {}", id);
+                    stopVirtualTryOn(id);
+                });
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(event.getMessage());
+        CamTryOnSession session = sessionFor(headers.getDestination());
+        if (session != null) {
+            session.addSubscriber(new FrameSubscriber(headers.getSessionId(), headers.getSubscriptionId(),
+                    clientOutboundChannel));
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(event.getMessage());
+        releaseSubscriber(headers.getSessionId(), headers.getSubscriptionId());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        releaseSubscriber(event.getSessionId(), null);
+    }
+
+    private void releaseSubscriber(String webSocketSessionId, String subscriptionId) {
+        // Subscription ids are only unique per WebSocket session, so both go into the match
+        for (CamTryOnSession session : sessions.values()) {
+            if (session.removeSubscriber(webSocketSessionId, subscriptionId)) {
+                log.info("Last viewer left try-on session {}", session.getId());
+                stopVirtualTryOn(session.getId());
+            }
+        }
+    }
+
+    private CamTryOnSession sessionFor(String destination) {
+        String prefix = "/topic/video-feed/";
+        if (destination == null || !destination.startsWith(prefix)) {
+            return null;
+        }
+        return sessions.get(destination.substring(prefix.length()));
+    }
+
+    @PreDestroy
+    public void stopAll() {
+        reaper.shutdownNow();
+        sessions.keySet().forEach(this::stopVirtualTryOn);
     }
-}
\ No newline at end of file
+}
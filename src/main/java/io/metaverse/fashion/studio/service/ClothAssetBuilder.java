@@ -0,0 +1,119 @@
+package io.metaverse.fashion.studio.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns an uploaded garment into the asset the webcam try-on loop consumes:
+ * the garment cut out to its bounding box with its mask as alpha, prescaled
+ * into a small pyramid, plus a JSON manifest listing the levels. The script
+ * then only resizes from the nearest level and blends on each frame instead
+ * of re-running thresholding, morphology and contour search.
+ *
+ * Assets are stored in the blob store; a garment uploaded again reuses the
+ * asset built for the same content.
+ */
+@Component
+public class ClothAssetBuilder {
+
+    private static final Logger log = LoggerFactory.getLogger(ClothAssetBuilder.class);
+
+    private static final int MAX_SIDE = 1024;
+    private static final int MIN_SIDE = 64;
+    private static final double LEVEL_STEP = 0.75;
+
+    private final BlobStore blobStore;
+    private final TryOnCompositor compositor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // garment blob key -> manifest blob key
+    private final Map<String, String> manifests = new ConcurrentHashMap<>();
+
+    public ClothAssetBuilder(BlobStore blobStore, TryOnCompositor compositor) {
+        this.blobStore = blobStore;
+        this.compositor = compositor;
+    }
+
+    /**
+     * @return the blob key of the asset manifest for a garment image already in the blob store
+     */
+    public String build(String clothImageKey) throws IOException {
+        String known = manifests.get(clothImageKey);
+        if (known != null && blobStore.exists(known)) {
+            return known;
+        }
+
+        long started = System.nanoTime();
+        BufferedImage cloth;
+        try (InputStream in = blobStore.open(clothImageKey)) {
+            cloth = ImageIO.read(in);
+        }
+        if (cloth == null) {
+            throw new IOException("Could not read cloth image");
+        }
+        BufferedImage level = compositor.cutOut(cloth);
+        if (level == null) {
+            throw new IOException("No garment found in cloth image");
+        }
+
+        double fit = Math.min(1.0, (double) MAX_SIDE / Math.max(level.getWidth(), level.getHeight()));
+        if (fit < 1.0) {
+            level = scale(level, fit);
+        }
+
+        ArrayNode levels = objectMapper.createArrayNode();
+        while (true) {
+            ObjectNode entry = levels.addObject();
+            entry.put("width", level.getWidth());
+            entry.put("height", level.getHeight());
+            entry.put("path", blobStore.localPath(storePng(level)).toAbsolutePath().toString());
+            if (Math.max(level.getWidth(), level.getHeight()) * LEVEL_STEP < MIN_SIDE) {
+                break;
+            }
+            // Each level is scaled from the previous one, which keeps bilinear downscaling sharp
+            level = scale(level, LEVEL_STEP);
+        }
+
+        ObjectNode manifest = objectMapper.createObjectNode();
+        manifest.put("source", clothImageKey);
+        manifest.set("levels", levels);
+        String manifestKey = blobStore.put(new ByteArrayInputStream(objectMapper.writeValueAsBytes(manifest)), "json");
+        manifests.put(clothImageKey, manifestKey);
+        log.info("Built cloth asset {} with {} level(s) in {} ms", manifestKey, levels.size(),
+                (System.nanoTime() - started) / 1_000_000);
+        return manifestKey;
+    }
+
+    private String storePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        return blobStore.put(new ByteArrayInputStream(png.toByteArray()), "png");
+    }
+
+    private static BufferedImage scale(BufferedImage source, double factor) {
+        int width = Math.max(1, (int) Math.round(source.getWidth() * factor));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * factor));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(source, 0, 0, width, height, null);
+        g.dispose();
+        return scaled;
+    }
+}
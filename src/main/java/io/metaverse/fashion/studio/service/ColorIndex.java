@@ -0,0 +1,253 @@
+package io.metaverse.fashion.studio.service;
+
+import java.util.Arrays;
+
+/**
+ * In-memory nearest-neighbour index over RGB colours.
+ *
+ * Points live in a static, balanced 3-d tree stored in flat arrays (ids plus
+ * three floats per point, in tree order), so a lookup touches O(log n) nodes
+ * and allocates only its result buffers. Points added after the last build go
+ * to a small unsorted buffer that is scanned linearly and merged into a fresh
+ * tree once it grows past {@link #REBUILD_THRESHOLD}.
+ *
+ * The tree and the pending points are published together as one immutable
+ * {@link State}, so a query reads a single consistent snapshot without
+ * locking. Writers append to the pending arrays past the end of every
+ * published snapshot and then publish a longer one. The merged tree is built
+ * outside the lock and swapped in afterwards, keeping the points added while
+ * it was being built.
+ */
+public class ColorIndex {
+
+    static final int REBUILD_THRESHOLD = 4096;
+
+    /** Nearest points to a query, closest first; distances are Euclidean in RGB space. */
+    public record Result(long[] ids, float[] distances) {
+    }
+
+    /** A tree plus the first {@code pendingSize} points of the pending arrays; never modified once published. */
+    private record State(Tree tree, long[] pendingIds, float[] pendingCoords, int pendingSize) {
+
+        static State of(Tree tree) {
+            return new State(tree, new long[64], new float[64 * 3], 0);
+        }
+    }
+
+    private volatile State state = State.of(new Tree(new long[0], new float[0], 0));
+    private boolean rebuilding;
+
+    /** Replaces the whole index, e.g. with the catalog loaded at startup. */
+    public void load(long[] ids, float[] coords, int size) {
+        Tree loaded = new Tree(ids, coords, size);
+        synchronized (this) {
+            state = State.of(loaded);
+        }
+    }
+
+    public void add(long id, float r, float g, float b) {
+        State merge = null;
+        synchronized (this) {
+            State current = state;
+            long[] pendingIds = current.pendingIds();
+            float[] pendingCoords = current.pendingCoords();
+            int pendingSize = current.pendingSize();
+            if (pendingSize == pendingIds.length) {
+                pendingIds = Arrays.copyOf(pendingIds, pendingSize * 2);
+                pendingCoords = Arrays.copyOf(pendingCoords, pendingSize * 2 * 3);
+            }
+            // Past the end of every published snapshot, so no reader sees these writes before the publish
+            pendingIds[pendingSize] = id;
+            pendingCoords[pendingSize * 3] = r;
+            pendingCoords[pendingSize * 3 + 1] = g;
+            pendingCoords[pendingSize * 3 + 2] = b;
+            state = new State(current.tree(), pendingIds, pendingCoords, pendingSize + 1);
+
+            if (pendingSize + 1 >= REBUILD_THRESHOLD && !rebuilding) {
+                rebuilding = true;
+                merge = state;
+            }
+        }
+        if (merge != null) {
+            rebuild(merge);
+        }
+    }
+
+    private void rebuild(State merge) {
+        Tree merged = null;
+        try {
+            Tree tree = merge.tree();
+            int size = tree.size + merge.pendingSize();
+            long[] ids = Arrays.copyOf(tree.ids, size);
+            float[] coords = Arrays.copyOf(tree.coords, size * 3);
+            System.arraycopy(merge.pendingIds(), 0, ids, tree.size, merge.pendingSize());
+            System.arraycopy(merge.pendingCoords(), 0, coords, tree.size * 3, merge.pendingSize() * 3);
+            merged = new Tree(ids, coords, size);
+        } finally {
+            synchronized (this) {
+                rebuilding = false;
+                State current = state;
+                // Dropped if the build failed or load() replaced the index in the meantime
+                if (merged != null && current.tree() == merge.tree()) {
+                    // Points added during the build move to fresh pending arrays
+                    int added = current.pendingSize() - merge.pendingSize();
+                    int capacity = Math.max(64, added);
+                    long[] pendingIds = new long[capacity];
+                    float[] pendingCoords = new float[capacity * 3];
+                    System.arraycopy(current.pendingIds(), merge.pendingSize(), pendingIds, 0, added);
+                    System.arraycopy(current.pendingCoords(), merge.pendingSize() * 3, pendingCoords, 0, added * 3);
+                    state = new State(merged, pendingIds, pendingCoords, added);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        State current = state;
+        return current.tree().size + current.pendingSize();
+    }
+
+    public Result nearest(float r, float g, float b, int k) {
+        State current = state;
+        TopK top = new TopK(k);
+        current.tree().search(r, g, b, top);
+        for (int i = 0; i < current.pendingSize(); i++) {
+            top.offer(current.pendingIds()[i], distanceSquared(current.pendingCoords(), i, r, g, b));
+        }
+        return top.result();
+    }
+
+    private static float distanceSquared(float[] coords, int index, float r, float g, float b) {
+        float dr = coords[index * 3] - r;
+        float dg = coords[index * 3 + 1] - g;
+        float db = coords[index * 3 + 2] - b;
+        return dr * dr + dg * dg + db * db;
+    }
+
+    /** Balanced k-d tree: the node for [lo, hi) sits at the middle, split on axis depth % 3. */
+    private static final class Tree {
+        private final long[] ids;
+        private final float[] coords;
+        private final int size;
+
+        private Tree(long[] ids, float[] coords, int size) {
+            this.ids = Arrays.copyOf(ids, size);
+            this.coords = Arrays.copyOf(coords, size * 3);
+            this.size = size;
+            build(0, size, 0);
+        }
+
+        private void build(int lo, int hi, int depth) {
+            if (hi - lo <= 1) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi - 1, mid, depth % 3);
+            build(lo, mid, depth + 1);
+            build(mid + 1, hi, depth + 1);
+        }
+
+        // Quickselect so that position k holds the median on the axis
+        private void select(int lo, int hi, int k, int axis) {
+            while (hi > lo) {
+                float pivot = coords[((lo + hi) >>> 1) * 3 + axis];
+                int i = lo;
+                int j = hi;
+                while (i <= j) {
+                    while (coords[i * 3 + axis] < pivot) {
+                        i++;
+                    }
+                    while (coords[j * 3 + axis] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(i++, j--);
+                    }
+                }
+                if (k <= j) {
+                    hi = j;
+                } else if (k >= i) {
+                    lo = i;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void swap(int a, int b) {
+            long id = ids[a];
+            ids[a] = ids[b];
+            ids[b] = id;
+            for (int axis = 0; axis < 3; axis++) {
+                float c = coords[a * 3 + axis];
+                coords[a * 3 + axis] = coords[b * 3 + axis];
+                coords[b * 3 + axis] = c;
+            }
+        }
+
+        void search(float r, float g, float b, TopK top) {
+            search(0, size, 0, r, g, b, top);
+        }
+
+        private void search(int lo, int hi, int depth, float r, float g, float b, TopK top) {
+            if (lo >= hi) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            top.offer(ids[mid], distanceSquared(coords, mid, r, g, b));
+
+            int axis = depth % 3;
+            float query = axis == 0 ? r : axis == 1 ? g : b;
+            float diff = query - coords[mid * 3 + axis];
+            if (diff < 0) {
+                search(lo, mid, depth + 1, r, g, b, top);
+                if (diff * diff < top.worst()) {
+                    search(mid + 1, hi, depth + 1, r, g, b, top);
+                }
+            } else {
+                search(mid + 1, hi, depth + 1, r, g, b, top);
+                if (diff * diff < top.worst()) {
+                    search(lo, mid, depth + 1, r, g, b, top);
+                }
+            }
+        }
+    }
+
+    /** The k closest points seen so far, kept sorted by insertion (k is small). */
+    private static final class TopK {
+        private final long[] ids;
+        private final float[] distances;
+        private int size;
+
+        TopK(int k) {
+            ids = new long[k];
+            distances = new float[k];
+        }
+
+        float worst() {
+            return size < ids.length ? Float.MAX_VALUE : distances[size - 1];
+        }
+
+        void offer(long id, float distance) {
+            if (distance >= worst()) {
+                return;
+            }
+            int i = size < ids.length ? size++ : size - 1;
+            while (i > 0 && distances[i - 1] > distance) {
+                ids[i] = ids[i - 1];
+                distances[i] = distances[i - 1];
+                i--;
+            }
+            ids[i] = id;
+            distances[i] = distance;
+        }
+
+        Result result() {
+            float[] euclidean = new float[size];
+            for (int i = 0; i < size; i++) {
+                euclidean[i] = (float) Math.sqrt(distances[i]);
+            }
+            return new Result(Arrays.copyOf(ids, size), euclidean);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package io.metaverse.fashion.studio.service;
+
+import io.metaverse.fashion.studio.entity.ClothingDesign;
+import io.metaverse.fashion.studio.repository.ClothingDesignRepository;
+import io.metaverse.fashion.studio.repository.DesignSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Finds stored designs whose prompt is a near duplicate of a new one (same words
+ * in another order, different punctuation or filler) for the same style and
+ * gender. The {@link PromptIndex} is built from the repository at startup and
+ * updated on every save.
+ *
+ * {@code ai.dedup.mode}:
+ * <ul>
+ *   <li>{@code off} - no lookups</li>
+ *   <li>{@code offer} - matches are offered to the client (the {@code /similar}
+ *       endpoint and a {@code similar} stream event) and generation goes ahead</li>
+ *   <li>{@code return} - the matching design is returned instead of generating</li>
+ * </ul>
+ */
+@Component
+public class DesignDeduplicator {
+
+    private static final Logger log = LoggerFactory.getLogger(DesignDeduplicator.class);
+
+    public enum Mode { OFF, OFFER, RETURN }
+
+    private final ClothingDesignRepository repository;
+    private final PromptIndex index = new PromptIndex();
+    private final Mode mode;
+    private final double threshold;
+
+    public DesignDeduplicator(ClothingDesignRepository repository,
+                              @Value("${ai.dedup.mode:offer}") String mode,
+                              @Value("${ai.dedup.threshold:0.8}") double threshold) {
+        this.repository = repository;
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.threshold = threshold;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadIndex() {
+        if (mode == Mode.OFF) {
+            return;
+        }
+        long started = System.nanoTime();
+        try (Stream<DesignSummary> designs = repository.streamAllSummaries()) {
+            Iterator<DesignSummary> iterator = designs.iterator();
+            while (iterator.hasNext()) {
+                DesignSummary design = iterator.next();
+                index.add(design.id(), partition(design.style(), design.gender()), design.prompt());
+            }
+        }
+        log.info("Indexed {} design prompt(s) for near-duplicate lookup in {} ms", index.size(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    public void add(ClothingDesign design) {
+        if (mode != Mode.OFF && design.getId() != null) {
+            index.add(design.getId(), partition(design.getStyle(), design.getGender()), design.getPrompt());
+        }
+    }
+
+    /** The id of the most similar stored design at or above the threshold. */
+    public Optional<PromptIndex.Match> findSimilar(String prompt, String style, String gender) {
+        if (mode == Mode.OFF) {
+            return Optional.empty();
+        }
+        return index.findSimilar(partition(style, gender), prompt, threshold);
+    }
+
+    private static String partition(String style, String gender) {
+        return normalise(style) + "|" + normalise(gender);
+    }
+
+    private static String normalise(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
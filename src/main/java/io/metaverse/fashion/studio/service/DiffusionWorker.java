@@ -0,0 +1,331 @@
+package io.metaverse.fashion.studio.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Long-lived generate_clothing_worker.py process that keeps the Stable Diffusion
+ * pipeline loaded between requests.
+ *
+ * Requests are written to the worker's stdin as one JSON object per line and the
+ * worker answers with JSON frames on stdout, each tagged with the request id:
+ * {@code progress}, {@code result} (the image URL) or {@code error}. The worker
+ * groups requests arriving within the batch window into a single pipeline call.
+ * A {@code {"cancel": id}} line withdraws a request: the worker drops it from
+ * its queue, skips saving its image and interrupts a batch once every request
+ * in it is cancelled. A worker that dies is restarted on the next submission.
+ */
+@Component
+public class DiffusionWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(DiffusionWorker.class);
+
+    @Value("${python.generate_worker.script}")
+    private String workerScriptPath;
+
+    @Value("${python.executable:python}")
+    private String pythonExecutable;
+
+    @Value("${ai.worker.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.worker.batch-window-ms:250}")
+    private int batchWindowMs;
+
+    @Value("${ai.worker.max-batch-size:4}")
+    private int maxBatchSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService processIoExecutor;
+    private final PythonProcessMetrics metrics;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private WorkerProcess worker;
+
+    public DiffusionWorker(PythonProcessMetrics metrics,
+                           @Qualifier("processIoExecutor") ExecutorService processIoExecutor) {
+        this.metrics = metrics;
+        this.processIoExecutor = processIoExecutor;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Resident diffusion worker disabled, falling back to per-request processes");
+            return;
+        }
+        try {
+            ensureStarted();
+        } catch (IOException e) {
+            log.warn("Could not start diffusion worker, it will be retried on first request: {}", e.getMessage());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a generation on the resident worker. Events are delivered to the
+     * listener on the worker's stdout reader thread.
+     *
+     * @return the request id used on the wire
+     */
+    public String submit(String prompt, String style, String gender, long seed, String outputDir,
+                         GenerationListener listener) throws IOException {
+        String requestId = UUID.randomUUID().toString();
+        ObjectNode request = objectMapper.createObjectNode();
+        request.put("id", requestId);
+        request.put("prompt", prompt);
+        request.put("style", style);
+        request.put("gender", gender);
+        request.put("seed", seed);
+        request.put("output_dir", outputDir);
+
+        lock.lock();
+        try {
+            WorkerProcess current = ensureStarted();
+            current.pending.put(requestId, timed(listener));
+            try {
+                current.writer.write(objectMapper.writeValueAsString(request));
+                current.writer.newLine();
+                current.writer.flush();
+            } catch (IOException e) {
+                current.pending.remove(requestId);
+                throw new IOException("Failed to send request to diffusion worker", e);
+            }
+        } finally {
+            lock.unlock();
+        }
+        log.info("Queued generation {} on diffusion worker", requestId);
+        return requestId;
+    }
+
+    /**
+     * Withdraws a queued or running request. Its listener gets no further
+     * events; a result that still arrives is deleted.
+     */
+    public void cancel(String requestId) {
+        lock.lock();
+        try {
+            if (worker == null || worker.pending.remove(requestId) == null) {
+                return;
+            }
+            ObjectNode request = objectMapper.createObjectNode();
+            request.put("cancel", requestId);
+            worker.writer.write(objectMapper.writeValueAsString(request));
+            worker.writer.newLine();
+            worker.writer.flush();
+            log.info("Cancelled generation {} on diffusion worker", requestId);
+        } catch (IOException e) {
+            log.warn("Could not send cancellation for {} to diffusion worker: {}", requestId, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private WorkerProcess ensureStarted() throws IOException {
+        lock.lock();
+        try {
+            if (worker == null || !worker.process.isAlive()) {
+                worker = startWorker();
+            }
+            return worker;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private WorkerProcess startWorker() throws IOException {
+        ProcessBuilder pb = new ProcessBuilder(
+                pythonExecutable,
+                workerScriptPath,
+                "--batch-window-ms", String.valueOf(batchWindowMs),
+                "--max-batch-size", String.valueOf(maxBatchSize)
+        );
+        PythonProcessMetrics.TrackedProcess tracked = metrics.start("diffusion-worker", pb);
+        Process process = tracked.process();
+        log.info("Started diffusion worker (pid {})", process.pid());
+
+        WorkerProcess started = new WorkerProcess(tracked);
+        processIoExecutor.execute(() -> readFrames(started));
+        processIoExecutor.execute(() -> drainLog(started));
+        return started;
+    }
+
+    private void readFrames(WorkerProcess source) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(source.process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    dispatch(source, objectMapper.readTree(line));
+                } catch (IOException e) {
+                    log.warn("Ignoring malformed worker frame: {}", line);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error reading diffusion worker output", e);
+        } finally {
+            log.warn("Diffusion worker output closed, failing {} pending request(s)", source.pending.size());
+            source.pending.forEach((id, listener) -> {
+                listener.onError("Diffusion worker exited");
+                listener.onComplete();
+            });
+            source.pending.clear();
+        }
+    }
+
+    private void dispatch(WorkerProcess source, JsonNode frame) {
+        String event = frame.path("event").asText();
+        if ("ready".equals(event)) {
+            // The worker only announces itself once the pipeline is loaded
+            source.tracked.outputSeen();
+            log.info("Diffusion worker ready");
+            return;
+        }
+
+        if (!deliver(source.pending, frame) && "result".equals(event)) {
+            // Finished before the worker saw the cancellation
+            deleteOutput(frame.path("value").asText());
+        }
+    }
+
+    /**
+     * Hands a progress, result or error frame to the listener of its request,
+     * which is removed once the request is finished.
+     *
+     * @return false if no listener is waiting for the request
+     */
+    static boolean deliver(Map<String, GenerationListener> pending, JsonNode frame) {
+        String event = frame.path("event").asText();
+        String requestId = frame.path("id").asText();
+        String value = frame.path("value").asText();
+        GenerationListener listener = pending.get(requestId);
+        if (listener == null) {
+            log.debug("Dropping {} frame for unknown request {}", event, requestId);
+            return false;
+        }
+
+        switch (event) {
+            case "progress" -> listener.onProgress(value);
+            case "result" -> {
+                pending.remove(requestId);
+                listener.onResult(value);
+                listener.onComplete();
+            }
+            case "error" -> {
+                pending.remove(requestId);
+                listener.onError(value);
+                listener.onComplete();
+            }
+            default -> log.debug("Unknown worker event {}", event);
+        }
+        return true;
+    }
+
+    private void deleteOutput(String imagePath) {
+        try {
+            Files.deleteIfExists(Paths.get(imagePath));
+        } catch (IOException e) {
+            log.warn("Could not delete output of cancelled generation {}: {}", imagePath, e.getMessage());
+        }
+    }
+
+    /** Records queue wait plus inference, from submission to the worker's result frame. */
+    private GenerationListener timed(GenerationListener listener) {
+        long submitted = System.nanoTime();
+        return new GenerationListener() {
+            @Override
+            public void onProgress(String percent) {
+                listener.onProgress(percent);
+            }
+
+            @Override
+            public void onResult(String imagePath) {
+                metrics.recordStage("diffusion-worker", "inference", submitted);
+                listener.onResult(imagePath);
+            }
+
+            @Override
+            public void onError(String message) {
+                listener.onError(message);
+            }
+
+            @Override
+            public void onComplete() {
+                listener.onComplete();
+            }
+        };
+    }
+
+    private void drainLog(WorkerProcess source) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(source.process.getErrorStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                log.info("Worker Output: {}", line);
+            }
+        } catch (IOException e) {
+            log.debug("Diffusion worker log stream closed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        lock.lock();
+        try {
+            if (worker != null && worker.process.isAlive()) {
+                // Closing stdin lets the worker finish its current batch and exit
+                worker.writer.close();
+                if (!worker.process.waitFor(10, TimeUnit.SECONDS)) {
+                    worker.process.destroy();
+                }
+            }
+        } catch (IOException e) {
+            worker.process.destroy();
+        } catch (InterruptedException e) {
+            worker.process.destroy();
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class WorkerProcess {
+        private final PythonProcessMetrics.TrackedProcess tracked;
+        private final Process process;
+        private final BufferedWriter writer;
+        private final Map<String, GenerationListener> pending = new ConcurrentHashMap<>();
+
+        private WorkerProcess(PythonProcessMetrics.TrackedProcess tracked) {
+            this.tracked = tracked;
+            this.process = tracked.process();
+            this.writer = new BufferedWriter(
+                    new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
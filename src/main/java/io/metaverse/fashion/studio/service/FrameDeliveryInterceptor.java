@@ -0,0 +1,26 @@
+package io.metaverse.fashion.studio.service;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+
+/**
+ * Tells a {@link FrameSubscriber} when its frame has left the node. Installed
+ * on the client outbound channel, whose handler writes each message to the
+ * client's WebSocket, so {@link #afterMessageHandled} runs once that write has
+ * finished, or failed because the session is gone.
+ */
+public class FrameDeliveryInterceptor implements ExecutorChannelInterceptor {
+
+    /** Header carrying the callback to run once the frame is written; never sent to the client. */
+    static final String SENT_CALLBACK_HEADER = "camFrameSent";
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler,
+                                    Exception ex) {
+        if (message.getHeaders().get(SENT_CALLBACK_HEADER) instanceof Runnable callback) {
+            callback.run();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package io.metaverse.fashion.studio.service;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+
+/**
+ * Latest-frame-wins delivery to one STOMP subscription.
+ *
+ * At most one frame is in flight to the client. The slot frees once the frame
+ * has been written to the client's WebSocket (reported by
+ * {@link FrameDeliveryInterceptor}), so a client that cannot keep up is paced
+ * by its own connection without having to do anything. A client that acks
+ * frames is also held to one unacknowledged frame (until the ack times out).
+ * Frames arriving meanwhile replace each other in a single slot, so a slow
+ * client receives fewer but always current frames and never builds up a queue
+ * on the node.
+ */
+class FrameSubscriber {
+
+    private final String webSocketSessionId;
+    private final String subscriptionId;
+    private final MessageChannel outboundChannel;
+
+    private Message<byte[]> pending;
+    private boolean sending;
+    private boolean acking;
+    private long awaitingAckSince;
+
+    FrameSubscriber(String webSocketSessionId, String subscriptionId, MessageChannel outboundChannel) {
+        this.webSocketSessionId = webSocketSessionId;
+        this.subscriptionId = subscriptionId;
+        this.outboundChannel = outboundChannel;
+    }
+
+    String webSocketSessionId() { return webSocketSessionId; }
+    String subscriptionId() { return subscriptionId; }
+
+    /**
+     * @return true if a frame that was never delivered got replaced
+     */
+    synchronized boolean offer(Message<byte[]> frame, long now, long ackTimeoutMs) {
+        boolean dropped = pending != null;
+        if (canSend(now, ackTimeoutMs)) {
+            pending = null;
+            send(frame, now);
+        } else {
+            pending = frame;
+        }
+        return dropped;
+    }
+
+    /** The last frame sent has been written to the WebSocket (or failed to be). */
+    synchronized void sent(long now, long ackTimeoutMs) {
+        sending = false;
+        sendPending(now, ackTimeoutMs);
+    }
+
+    synchronized void ack(long now, long ackTimeoutMs) {
+        acking = true;
+        awaitingAckSince = 0;
+        sendPending(now, ackTimeoutMs);
+    }
+
+    private boolean canSend(long now, long ackTimeoutMs) {
+        if (sending) {
+            return false;
+        }
+        return !acking || awaitingAckSince == 0 || now - awaitingAckSince > ackTimeoutMs;
+    }
+
+    private void sendPending(long now, long ackTimeoutMs) {
+        if (pending != null && canSend(now, ackTimeoutMs)) {
+            Message<byte[]> next = pending;
+            pending = null;
+            send(next, now);
+        }
+    }
+
+    private void send(Message<byte[]> frame, long now) {
+        sending = true;
+        awaitingAckSince = now;
+        // Only queues the frame on the outbound channel's executor
+        outboundChannel.send(frame);
+    }
+}
@@ -0,0 +1,243 @@
+package io.metaverse.fashion.studio.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Content-addressed cache of generated images with single-flight deduplication.
+ *
+ * Entries are keyed on the SHA-256 of the normalised (prompt, style, gender, seed)
+ * tuple and map to the uploaded image URL. Only seeded generations come through
+ * here, since an unseeded one is not meant to repeat. Entries live in a
+ * {@link CacheIndex} bounded by their count, so they survive restarts.
+ *
+ * While a key is being generated, further requests for it subscribe to the
+ * running generation instead of starting another one, and each subscriber
+ * receives the same progress and result events. A subscriber that cancels
+ * only leaves the flight; the generation itself is cancelled once nobody is
+ * left waiting for it.
+ */
+@Component
+public class GenerationCache {
+
+    private static final Logger log = LoggerFactory.getLogger(GenerationCache.class);
+
+    @FunctionalInterface
+    public interface GenerationStarter {
+        void start(GenerationListener listener, GenerationCancellation cancellation) throws IOException;
+    }
+
+    private final boolean enabled;
+    private final CacheIndex index;
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    public GenerationCache(@Value("${ai.cache.enabled:true}") boolean enabled,
+                           @Value("${ai.cache.max-entries:500}") int maxEntries,
+                           @Value("${ai.cache.index-file:data/generation-cache-index.txt}") String indexFile) {
+        this.enabled = enabled;
+        // Evicted entries only drop the key; the image stays with the designs that use it
+        this.index = new CacheIndex("Generation cache", indexFile, maxEntries, imageUrl -> true,
+                (key, imageUrl, lastReference) -> { });
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            index.load();
+        } catch (IOException e) {
+            log.warn("Could not load generation cache index: {}", e.getMessage());
+        }
+    }
+
+    public static String key(String prompt, String style, String gender, long seed) {
+        String normalised = normalise(prompt) + "\n" + normalise(style) + "\n" + normalise(gender) + "\n" + seed;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalised.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String normalise(String value) {
+        return value == null ? "" : value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Delivers the image for {@code key} to the listener: straight from the cache,
+     * by joining a generation already in flight, or by starting one with the starter.
+     * Cancelling {@code cancellation} stops delivery to this listener.
+     */
+    public void generate(String key, GenerationListener listener, GenerationCancellation cancellation,
+                         GenerationStarter starter) throws IOException {
+        if (!enabled) {
+            starter.start(listener, cancellation);
+            return;
+        }
+
+        String cached = index.get(key);
+        if (cached != null) {
+            log.info("Generation cache hit for {}", key);
+            listener.onProgress("100");
+            listener.onResult(cached);
+            listener.onComplete();
+            return;
+        }
+
+        Flight created = new Flight(key);
+        Flight flight;
+        while ((flight = inFlight.putIfAbsent(key, created)) != null) {
+            if (flight.subscribe(listener)) {
+                log.info("Joining in-flight generation for {}", key);
+                Flight joined = flight;
+                cancellation.onCancel(() -> joined.unsubscribe(listener));
+                return;
+            }
+            // Abandoned by its last subscriber and on its way out
+            inFlight.remove(key, flight);
+        }
+
+        created.subscribe(listener);
+        cancellation.onCancel(() -> created.unsubscribe(listener));
+        try {
+            starter.start(created, created.upstream);
+        } catch (IOException e) {
+            created.onError(e.getMessage());
+            created.onComplete();
+        }
+    }
+
+    /**
+     * A running generation. Fans events out to every subscriber and replays the
+     * latest progress (or the outcome) to subscribers that join late.
+     *
+     * Events are delivered while holding the flight's lock, so a late joiner's
+     * replay cannot interleave with live events. Subscribers write to client
+     * streams under it; see {@link CacheIndex} for why that is a ReentrantLock.
+     */
+    private final class Flight implements GenerationListener {
+        private final String key;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final GenerationCancellation upstream = new GenerationCancellation();
+        private final List<GenerationListener> subscribers = new ArrayList<>();
+        private String lastProgress;
+        private String result;
+        private String error;
+        private boolean done;
+        private boolean abandoned;
+
+        private Flight(String key) {
+            this.key = key;
+        }
+
+        /**
+         * @return false if the flight was cancelled and can no longer be joined
+         */
+        boolean subscribe(GenerationListener listener) {
+            lock.lock();
+            try {
+                if (abandoned) {
+                    return false;
+                }
+                if (lastProgress != null) {
+                    listener.onProgress(lastProgress);
+                }
+                if (done) {
+                    if (result != null) {
+                        listener.onResult(result);
+                    }
+                    if (error != null) {
+                        listener.onError(error);
+                    }
+                    listener.onComplete();
+                    return true;
+                }
+                subscribers.add(listener);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void unsubscribe(GenerationListener listener) {
+            lock.lock();
+            try {
+                if (!subscribers.remove(listener) || !subscribers.isEmpty() || done) {
+                    return;
+                }
+                abandoned = true;
+                inFlight.remove(key, this);
+            } finally {
+                lock.unlock();
+            }
+            log.info("Last subscriber left, cancelling generation for {}", key);
+            upstream.cancel();
+        }
+
+        @Override
+        public void onProgress(String percent) {
+            lock.lock();
+            try {
+                lastProgress = percent;
+                subscribers.forEach(s -> s.onProgress(percent));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void onResult(String imageUrl) {
+            // Cached before the lock is taken: the index append is file I/O
+            index.put(key, imageUrl, 1);
+            lock.lock();
+            try {
+                result = imageUrl;
+                subscribers.forEach(s -> s.onResult(imageUrl));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void onError(String message) {
+            lock.lock();
+            try {
+                error = message;
+                subscribers.forEach(s -> s.onError(message));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            lock.lock();
+            try {
+                done = true;
+                inFlight.remove(key, this);
+                subscribers.forEach(GenerationListener::onComplete);
+                subscribers.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
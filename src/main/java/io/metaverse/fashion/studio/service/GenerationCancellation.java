@@ -0,0 +1,48 @@
+package io.metaverse.fashion.studio.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lets whoever is waiting on a clothing generation give up on it. The code
+ * running the generation registers how to abort it (destroy the process, drop
+ * the worker request, ...) and {@link #cancel()} runs those actions once.
+ * An action registered after cancellation runs straight away.
+ */
+public final class GenerationCancellation {
+
+    private final List<Runnable> actions = new ArrayList<>();
+    private boolean cancelled;
+
+    public void onCancel(Runnable action) {
+        synchronized (this) {
+            if (!cancelled) {
+                actions.add(action);
+                return;
+            }
+        }
+        action.run();
+    }
+
+    /**
+     * @return false if it was already cancelled
+     */
+    public boolean cancel() {
+        List<Runnable> toRun;
+        synchronized (this) {
+            if (cancelled) {
+                return false;
+            }
+            cancelled = true;
+            toRun = new ArrayList<>(actions);
+            actions.clear();
+        }
+        // Actions may block (process teardown), so they run outside the monitor
+        toRun.forEach(Runnable::run);
+        return true;
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+}
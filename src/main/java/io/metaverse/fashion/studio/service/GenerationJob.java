@@ -0,0 +1,86 @@
+package io.metaverse.fashion.studio.service;
+
+import io.metaverse.fashion.studio.entity.ClothingDesign;
+
+import java.time.Instant;
+
+/**
+ * A queued clothing generation tracked by {@link GenerationJobService}.
+ * Jobs live in memory only and are dropped once their retention period expires.
+ */
+public class GenerationJob {
+
+    public enum State { QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED }
+
+    private final String id;
+    private final String prompt;
+    private final String style;
+    private final String gender;
+    private final Long seed;
+    private final int priority;
+    private final long sequence;
+    private final Instant submittedAt = Instant.now();
+    private final GenerationCancellation cancellation = new GenerationCancellation();
+
+    private volatile State state = State.QUEUED;
+    private volatile int queuePosition;
+    private volatile String progress = "0";
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile ClothingDesign design;
+    private volatile String error;
+
+    GenerationJob(String id, String prompt, String style, String gender, Long seed, int priority, long sequence) {
+        this.id = id;
+        this.prompt = prompt;
+        this.style = style;
+        this.gender = gender;
+        this.seed = seed;
+        this.priority = priority;
+        this.sequence = sequence;
+    }
+
+    public String getId() { return id; }
+    public String getPrompt() { return prompt; }
+    public String getStyle() { return style; }
+    public String getGender() { return gender; }
+    public Long getSeed() { return seed; }
+    public int getPriority() { return priority; }
+    public State getState() { return state; }
+    public int getQueuePosition() { return queuePosition; }
+    public String getProgress() { return progress; }
+    public Instant getSubmittedAt() { return submittedAt; }
+    public Instant getStartedAt() { return startedAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    public ClothingDesign getDesign() { return design; }
+    public String getError() { return error; }
+
+    long getSequence() { return sequence; }
+    GenerationCancellation getCancellation() { return cancellation; }
+    void setQueuePosition(int queuePosition) { this.queuePosition = queuePosition; }
+    void setProgress(String progress) { this.progress = progress; }
+
+    void markRunning() {
+        startedAt = Instant.now();
+        queuePosition = 0;
+        state = State.RUNNING;
+    }
+
+    void markSucceeded(ClothingDesign design) {
+        this.design = design;
+        progress = "100";
+        finishedAt = Instant.now();
+        state = State.SUCCEEDED;
+    }
+
+    void markCancelled() {
+        finishedAt = Instant.now();
+        state = State.CANCELLED;
+    }
+
+    void markFailed(String error) {
+        this.error = error;
+        finishedAt = Instant.now();
+        state = State.FAILED;
+    }
+}
@@ -0,0 +1,162 @@
+package io.metaverse.fashion.studio.service;
+
+import io.metaverse.fashion.studio.entity.ClothingDesign;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs clothing generations in the background so requests return a job id
+ * immediately instead of holding a servlet thread for the whole run.
+ *
+ * At most {@code ai.jobs.max-concurrent} jobs run per node; the rest wait in a
+ * priority queue (higher priority first, then submission order). The same limit
+ * caps generations node-wide, so a running job may still wait for a slot held by
+ * a synchronous or streamed generation. Jobs are
+ * not tied to the submitting request, so a client can disconnect and poll later.
+ * Cancelling a running job stops its generation and frees its runner.
+ */
+@Service
+public class GenerationJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(GenerationJobService.class);
+
+    private static final Comparator<GenerationJob> ORDER = Comparator
+            .comparingInt(GenerationJob::getPriority).reversed()
+            .thenComparingLong(GenerationJob::getSequence);
+
+    @Value("${ai.jobs.max-concurrent:1}")
+    private int maxConcurrent;
+
+    @Value("${ai.jobs.max-queued:100}")
+    private int maxQueued;
+
+    @Value("${ai.jobs.retention-minutes:60}")
+    private long retentionMinutes;
+
+    private final AIClothingService aiService;
+    private final PythonProcessMetrics metrics;
+    private final PriorityBlockingQueue<GenerationJob> queue = new PriorityBlockingQueue<>(16, ORDER);
+    private final Map<String, GenerationJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private ExecutorService runners;
+
+    public GenerationJobService(AIClothingService aiService, PythonProcessMetrics metrics) {
+        this.aiService = aiService;
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    public void start() {
+        runners = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("generation-job-", 0).factory());
+        for (int i = 0; i < maxConcurrent; i++) {
+            runners.execute(this::runJobs);
+        }
+        log.info("Generation job scheduler started with {} runner(s)", maxConcurrent);
+    }
+
+    public GenerationJob submit(String prompt, String style, String gender, Long seed, int priority) {
+        evictExpired();
+        if (queue.size() >= maxQueued) {
+            throw new IllegalStateException("Generation queue is full (" + maxQueued + " jobs waiting)");
+        }
+        GenerationJob job = new GenerationJob(UUID.randomUUID().toString(), prompt, style, gender, seed,
+                priority, sequence.incrementAndGet());
+        jobs.put(job.getId(), job);
+        queue.add(job);
+        log.info("Queued generation job {} (priority {}, {} waiting)", job.getId(), priority, queue.size());
+        return refreshPosition(job);
+    }
+
+    public Optional<GenerationJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(this::refreshPosition);
+    }
+
+    /**
+     * Cancels a queued or running job. Finished jobs are returned unchanged.
+     */
+    public Optional<GenerationJob> cancel(String id) {
+        GenerationJob job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        if (job.getFinishedAt() == null && job.getCancellation().cancel()) {
+            log.info("Cancelled generation job {}", id);
+            metrics.cancelled("generate-clothing", "job");
+            if (queue.remove(job)) {
+                job.markCancelled();
+            }
+        }
+        return Optional.of(refreshPosition(job));
+    }
+
+    private GenerationJob refreshPosition(GenerationJob job) {
+        if (job.getState() == GenerationJob.State.QUEUED) {
+            int ahead = 0;
+            for (GenerationJob other : queue) {
+                if (other != job && ORDER.compare(other, job) < 0) {
+                    ahead++;
+                }
+            }
+            job.setQueuePosition(ahead + 1);
+        }
+        return job;
+    }
+
+    private void runJobs() {
+        while (!Thread.currentThread().isInterrupted()) {
+            GenerationJob job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            if (job.getCancellation().isCancelled()) {
+                job.markCancelled();
+                continue;
+            }
+            job.markRunning();
+            log.info("Running generation job {}", job.getId());
+            try {
+                ClothingDesign design = aiService.generateClothingDesign(job.getPrompt(), job.getStyle(),
+                        job.getGender(), job.getSeed(), job::setProgress, job.getCancellation());
+                job.markSucceeded(design);
+                log.info("Generation job {} finished", job.getId());
+            } catch (CancellationException e) {
+                log.info("Generation job {} cancelled", job.getId());
+                job.markCancelled();
+            } catch (Exception e) {
+                log.error("Generation job {} failed: {}", job.getId(), e.getMessage());
+                job.markFailed(e.getMessage());
+            }
+        }
+    }
+
+    private void evictExpired() {
+        Instant cutoff = Instant.now().minus(Duration.ofMinutes(retentionMinutes));
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void stop() {
+        runners.shutdownNow();
+    }
+}
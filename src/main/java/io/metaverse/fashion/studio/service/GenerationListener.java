@@ -0,0 +1,16 @@
+package io.metaverse.fashion.studio.service;
+
+/**
+ * Receives the lifecycle events of a single clothing generation, whether it runs
+ * in the resident worker or in a one-off generate_clothing.py process.
+ */
+public interface GenerationListener {
+
+    void onProgress(String percent);
+
+    void onResult(String imageUrl);
+
+    void onError(String message);
+
+    void onComplete();
+}
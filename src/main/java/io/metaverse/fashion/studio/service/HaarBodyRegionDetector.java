@@ -0,0 +1,143 @@
+package io.metaverse.fashion.studio.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * OpenCV Haar-cascade torso detection (the same code virtual_tryon.py uses),
+ * run in one resident detect_body_region.py process. Pixels are piped as raw
+ * BGR bytes, so there is no process start or image encoding per request; only
+ * the rectangle comes back. Requests are served one at a time.
+ */
+@Component
+@ConditionalOnProperty(name = "tryon.detector", havingValue = "haar", matchIfMissing = true)
+public class HaarBodyRegionDetector implements BodyRegionDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(HaarBodyRegionDetector.class);
+
+    @Value("${python.bodydetect.script:src/main/resources/python/detect_body_region.py}")
+    private String scriptPath;
+
+    @Value("${python.executable:python}")
+    private String pythonExecutable;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService processIoExecutor;
+    private final PythonProcessMetrics metrics;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private PythonProcessMetrics.TrackedProcess tracked;
+    private Process process;
+    private DataOutputStream requests;
+    private BufferedReader responses;
+
+    public HaarBodyRegionDetector(PythonProcessMetrics metrics,
+                                  @Qualifier("processIoExecutor") ExecutorService processIoExecutor) {
+        this.metrics = metrics;
+        this.processIoExecutor = processIoExecutor;
+    }
+
+    @Override
+    public Optional<Region> detect(BufferedImage image) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] rgb = image.getRGB(0, 0, width, height, null, 0, width);
+        byte[] bgr = new byte[rgb.length * 3];
+        for (int i = 0, j = 0; i < rgb.length; i++, j += 3) {
+            bgr[j] = (byte) rgb[i];
+            bgr[j + 1] = (byte) (rgb[i] >> 8);
+            bgr[j + 2] = (byte) (rgb[i] >> 16);
+        }
+
+        String line;
+        lock.lock();
+        try {
+            ensureStarted();
+            try {
+                requests.writeInt(width);
+                requests.writeInt(height);
+                requests.write(bgr);
+                requests.flush();
+                line = responses.readLine();
+            } catch (IOException e) {
+                stop();
+                throw new IOException("Body region detector failed", e);
+            }
+            if (line == null) {
+                stop();
+                throw new IOException("Body region detector exited");
+            }
+            // The cascade is loaded before the first request is read, so this includes startup
+            tracked.outputSeen();
+        } finally {
+            lock.unlock();
+        }
+
+        JsonNode response = objectMapper.readTree(line);
+        if (response.hasNonNull("error")) {
+            throw new IOException("Body region detection failed: " + response.get("error").asText());
+        }
+        JsonNode rect = response.path("rect");
+        if (!rect.isArray() || rect.size() != 4) {
+            return Optional.empty();
+        }
+        return Optional.of(new Region(rect.get(0).asInt(), rect.get(1).asInt(), rect.get(2).asInt(), rect.get(3).asInt()));
+    }
+
+    private void ensureStarted() throws IOException {
+        if (process != null && process.isAlive()) {
+            return;
+        }
+        tracked = metrics.start("body-detect", new ProcessBuilder(pythonExecutable, scriptPath));
+        process = tracked.process();
+        requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream(), 1 << 16));
+        responses = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        Process started = process;
+        processIoExecutor.execute(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(started.getErrorStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    log.debug("detect_body_region.py: {}", line);
+                }
+            } catch (IOException e) {
+                log.debug("detect_body_region.py log stream closed");
+            }
+        });
+        log.info("Started body region detector (pid {})", process.pid());
+    }
+
+    private void stop() {
+        if (process != null) {
+            process.destroy();
+            process = null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lock.lock();
+        try {
+            stop();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
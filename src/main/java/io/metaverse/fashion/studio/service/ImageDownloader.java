@@ -0,0 +1,175 @@
+package io.metaverse.fashion.studio.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Downloads source images through one shared {@link HttpClient}, so connections
+ * are pooled across requests, and caps how many downloads run in total and how
+ * many hit the same host at once.
+ *
+ * A download waits for its host's permit before taking a global one, so a batch
+ * aimed at one host queues behind that host's limit instead of holding global
+ * permits that other hosts need. Hostnames come from clients, so a host's
+ * semaphore is only kept while some download for it is running or waiting.
+ */
+@Component
+public class ImageDownloader {
+
+    private static final int MAX_IMAGE_BYTES = 10_000_000; // 10MB max
+
+    /** Result of a download; {@code bytes} is null when the server answered 304 Not Modified. */
+    public record Download(boolean notModified, byte[] bytes, String etag, String lastModified) {
+    }
+
+    @Value("${image.download.max-per-host:4}")
+    private int maxPerHost;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    private final ExecutorService executor;
+    private final Semaphore downloadPermits;
+    // Only changed inside ConcurrentHashMap.compute, which serialises updates per host
+    private final Map<String, HostPermits> hostPermits = new ConcurrentHashMap<>();
+
+    private static final class HostPermits {
+        private final Semaphore permits;
+        private int users;
+
+        private HostPermits(int permits) {
+            this.permits = new Semaphore(permits);
+        }
+    }
+
+    public ImageDownloader(@Value("${image.download.threads:16}") int threads,
+                           @Qualifier("processIoExecutor") ExecutorService processIoExecutor) {
+        this.executor = processIoExecutor;
+        this.downloadPermits = new Semaphore(threads);
+    }
+
+    /**
+     * Runs {@link #download} on the process I/O executor. Cancelling the returned
+     * future interrupts the download, which then gives up its permits.
+     */
+    public CompletableFuture<Download> downloadAsync(String imageUrl, BackgroundRemovalCache.UrlEntry known) {
+        CompletableFuture<Download> result = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            try {
+                result.complete(download(imageUrl, known));
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((download, e) -> {
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Downloads an image, sending the known validators (if any) so an unchanged
+     * image comes back as 304 Not Modified without a body.
+     */
+    public Download download(String imageUrl, BackgroundRemovalCache.UrlEntry known)
+            throws IOException, InterruptedException {
+        URI uri;
+        try {
+            uri = URI.create(imageUrl.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid URL format: " + imageUrl, e);
+        }
+        if (uri.getHost() == null) {
+            throw new IOException("Invalid URL format: " + imageUrl);
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(15))
+                .header("User-Agent", "FashionStudioAI/1.0")
+                .GET();
+        if (known != null && known.etag() != null) {
+            request.header("If-None-Match", known.etag());
+        }
+        if (known != null && known.lastModified() != null) {
+            request.header("If-Modified-Since", known.lastModified());
+        }
+
+        String host = uri.getHost().toLowerCase(Locale.ROOT);
+        HostPermits hostEntry = hostPermits.compute(host, (key, entry) -> {
+            HostPermits permits = entry != null ? entry : new HostPermits(maxPerHost);
+            permits.users++;
+            return permits;
+        });
+        try {
+            hostEntry.permits.acquire();
+            try {
+                downloadPermits.acquire();
+                try {
+                    return send(request.build(), imageUrl, known);
+                } finally {
+                    downloadPermits.release();
+                }
+            } finally {
+                hostEntry.permits.release();
+            }
+        } finally {
+            hostPermits.computeIfPresent(host, (key, entry) -> --entry.users == 0 ? null : entry);
+        }
+    }
+
+    private Download send(HttpRequest request, String imageUrl, BackgroundRemovalCache.UrlEntry known)
+            throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            int status = response.statusCode();
+            if (status == 304 && known != null) {
+                return new Download(true, null, known.etag(), known.lastModified());
+            }
+            if (status != 200) {
+                throw new IOException("Server returned HTTP " + status + " for URL: " + imageUrl);
+            }
+
+            String contentType = response.headers().firstValue("Content-Type").orElse(null);
+            if (contentType == null || !contentType.startsWith("image/")) {
+                throw new IOException("Invalid content type: " + contentType);
+            }
+
+            return new Download(false, readLimited(body),
+                    response.headers().firstValue("ETag").orElse(null),
+                    response.headers().firstValue("Last-Modified").orElse(null));
+        }
+    }
+
+    private static byte[] readLimited(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        byte[] buffer = new byte[8192];
+        int bytesRead;
+        while ((bytesRead = in.read(buffer)) != -1) {
+            out.write(buffer, 0, bytesRead);
+            if (out.size() > MAX_IMAGE_BYTES) {
+                throw new IOException("Image too large (max 10MB)");
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -1,16 +1,30 @@
 package io.metaverse.fashion.studio.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
 
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
 @Service
@@ -21,10 +35,75 @@ public class ImageProcessingService {
     @Value("${python.scripts.remove-background}")
     private String removeBackgroundScript;
 
+    @Value("${python.executable:python}")
+    private String pythonExecutable;
+
     @Value("${file.upload.temp-dir}")
     private String tempDir;
 
+    private final BackgroundRemovalCache cache;
+    private final ImageDownloader downloader;
+    private final PythonProcessMetrics metrics;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService processIoExecutor;
+
+    public ImageProcessingService(BackgroundRemovalCache cache, ImageDownloader downloader,
+                                  PythonProcessMetrics metrics,
+                                  @Qualifier("processIoExecutor") ExecutorService processIoExecutor) {
+        this.cache = cache;
+        this.downloader = downloader;
+        this.metrics = metrics;
+        this.processIoExecutor = processIoExecutor;
+    }
+
+    /**
+     * Returns the blob URL of the background-removed PNG for an image URL.
+     *
+     * A URL seen before is revalidated with its ETag / Last-Modified and, if
+     * unchanged, answered from the cache without downloading. Otherwise the
+     * downloaded bytes are hashed and rembg only runs for content not already
+     * processed. Concurrent calls for the same URL or content share one run.
+     */
     public String removeBackground(String imageUrl) throws IOException, InterruptedException {
+        // Validate URL
+        if (imageUrl == null || imageUrl.trim().isEmpty()) {
+            throw new IOException("Image URL cannot be null or empty");
+        }
+        return cache.url(cache.coalesce("url:" + imageUrl, () -> resolve(imageUrl)));
+    }
+
+    private String resolve(String imageUrl) throws IOException, InterruptedException {
+        BackgroundRemovalCache.UrlEntry known = cache.getUrl(imageUrl);
+        long downloading = System.nanoTime();
+        ImageDownloader.Download download = downloader.download(imageUrl, known);
+        metrics.recordStage("remove-background", "download", downloading);
+        if (download.notModified()) {
+            String cached = cache.get(known.sha256());
+            if (cached != null) {
+                logger.info("Background removal cache hit (not modified) for " + imageUrl);
+                return cached;
+            }
+            download = downloader.download(imageUrl, null);
+        }
+
+        byte[] imageBytes = download.bytes();
+        String sha256 = BackgroundRemovalCache.sha256(imageBytes);
+        cache.putUrl(imageUrl, new BackgroundRemovalCache.UrlEntry(download.etag(), download.lastModified(), sha256));
+        return cache.coalesce("sha:" + sha256, () -> {
+            String cached = cache.get(sha256);
+            if (cached != null) {
+                logger.info("Background removal cache hit (same content) for " + imageUrl);
+                return cached;
+            }
+            Path output = runRemoveBackground(imageBytes);
+            long storing = System.nanoTime();
+            String key = cache.put(sha256, output);
+            metrics.recordStage("remove-background", "store", storing);
+            return key;
+        });
+    }
+
+    private Path runRemoveBackground(byte[] imageBytes) throws IOException, InterruptedException {
         // Create temp directory if not exists
         Path tempPath = Paths.get(tempDir);
         if (!Files.exists(tempPath)) {
@@ -39,20 +118,19 @@ public class ImageProcessingService {
         Path outputPath = tempPath.resolve(outputFilename);
 
         try {
-            // Download image from URL (simplified example)
-            byte[] imageBytes = downloadImage(imageUrl);
             Files.write(inputPath, imageBytes);
 
             // Build and execute Python process
             ProcessBuilder pb = new ProcessBuilder(
-                    "python",
+                    pythonExecutable,
                     removeBackgroundScript,
                     inputPath.toString(),
                     outputPath.toString()
             );
 
             pb.redirectErrorStream(true);
-            Process process = pb.start();
+            PythonProcessMetrics.TrackedProcess tracked = metrics.start("remove-background", pb);
+            Process process = tracked.process();
 
             // Read output
             StringBuilder pythonOutput = new StringBuilder();
@@ -60,6 +138,7 @@ public class ImageProcessingService {
                     new InputStreamReader(process.getInputStream()))) {
                 String line;
                 while ((line = reader.readLine()) != null) {
+                    tracked.outputSeen();
                     pythonOutput.append(line).append("\n");
                 }
             }
@@ -72,88 +151,329 @@ public class ImageProcessingService {
 
             // Parse output
             if (pythonOutput.toString().startsWith("SUCCESS:")) {
-                String processedPath = pythonOutput.toString().substring(8);
-                return processedPath;
+                return outputPath;
             } else {
                 throw new IOException(pythonOutput.toString());
             }
         } finally {
-            // Clean up input file (output file will be served)
+            // Clean up input file (output file is moved into the blob store)
             Files.deleteIfExists(inputPath);
         }
     }
 
-    private byte[] downloadImage(String imageUrl) throws IOException {
-        // Validate URL
-        if (imageUrl == null || imageUrl.trim().isEmpty()) {
-            throw new IOException("Image URL cannot be null or empty");
+    /**
+     * Removes the background of many images with one rembg process. Downloads run
+     * concurrently (bounded per host); cached images are answered straight away
+     * and the rest are fed to the process as soon as they arrive. One result is
+     * emitted per URL, in completion order. A client that disconnects cancels the
+     * outstanding downloads and stops the process.
+     */
+    public Flux<Map<String, Object>> removeBackgroundBatch(List<String> imageUrls) {
+        return Flux.create(sink -> {
+            BackgroundRemovalBatch batch = new BackgroundRemovalBatch(imageUrls, sink);
+            sink.onCancel(batch::cancel);
+            batch.start();
+        }, FluxSink.OverflowStrategy.BUFFER);
+    }
+
+    /** The result object on a line of the batch script's stdout, or null if the line is not one. */
+    static JsonNode parseResult(ObjectMapper objectMapper, String line) {
+        if (!line.startsWith("{")) {
+            return null;
+        }
+        try {
+            JsonNode result = objectMapper.readTree(line);
+            return result.hasNonNull("id") ? result : null;
+        } catch (JsonProcessingException e) {
+            return null;
         }
+    }
 
-        HttpURLConnection connection = null;
-        InputStream inputStream = null;
-        ByteArrayOutputStream outputStream = null;
+    private final class BackgroundRemovalBatch {
+        private final List<String> imageUrls;
+        private final FluxSink<Map<String, Object>> sink;
+        // content hash -> indexes of the batch items waiting for it
+        private final Map<String, List<Integer>> pending = new HashMap<>();
+        // content hash -> scratch files of the queued image, removed if it never completes
+        private final Map<String, List<Path>> pendingFiles = new HashMap<>();
+        private final List<CompletableFuture<?>> downloads = new ArrayList<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private PythonProcessMetrics.TrackedProcess tracked;
+        private Process process;
+        private BufferedWriter processInput;
+        private boolean downloadsDone;
+        private boolean processDone;
+        private boolean cancelled;
 
-        try {
-            URL url = new URL(imageUrl);
-            connection = (HttpURLConnection) url.openConnection();
-
-            // Set timeout and headers
-            connection.setConnectTimeout(5000); // 5 seconds
-            connection.setReadTimeout(15000);   // 15 seconds
-            connection.setRequestProperty("User-Agent", "FashionStudioAI/1.0");
-
-            // Verify response code
-            int responseCode = connection.getResponseCode();
-            if (responseCode != HttpURLConnection.HTTP_OK) {
-                throw new IOException("Server returned HTTP " + responseCode + " for URL: " + imageUrl);
+        private BackgroundRemovalBatch(List<String> imageUrls, FluxSink<Map<String, Object>> sink) {
+            this.imageUrls = imageUrls;
+            this.sink = sink;
+        }
+
+        void start() {
+            CompletableFuture<?>[] items = new CompletableFuture<?>[imageUrls.size()];
+            for (int i = 0; i < imageUrls.size(); i++) {
+                int index = i;
+                String imageUrl = imageUrls.get(i);
+                BackgroundRemovalCache.UrlEntry known = cache.getUrl(imageUrl);
+                items[i] = track(downloader.downloadAsync(imageUrl, known))
+                        .thenCompose(download -> download.notModified() && cache.get(known.sha256()) == null
+                                ? track(downloader.downloadAsync(imageUrl, null))
+                                : CompletableFuture.completedFuture(download))
+                        .thenAccept(download -> accept(index, known, download))
+                        .exceptionally(e -> {
+                            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                            emitError(index, cause.getMessage());
+                            return null;
+                        });
             }
+            CompletableFuture.allOf(items).whenComplete((ignored, e) -> finishDownloads());
+        }
 
-            // Check content type
-            String contentType = connection.getContentType();
-            if (contentType == null || !contentType.startsWith("image/")) {
-                throw new IOException("Invalid content type: " + contentType);
+        private <T> CompletableFuture<T> track(CompletableFuture<T> download) {
+            lock.lock();
+            try {
+                if (cancelled) {
+                    download.cancel(true);
+                } else {
+                    downloads.add(download);
+                }
+            } finally {
+                lock.unlock();
             }
+            download.whenComplete((result, e) -> {
+                lock.lock();
+                try {
+                    downloads.remove(download);
+                } finally {
+                    lock.unlock();
+                }
+            });
+            return download;
+        }
 
-            // Get content length for progress/validation
-            int contentLength = connection.getContentLength();
-            if (contentLength > 10_000_000) { // 10MB max
-                throw new IOException("Image too large (max 10MB)");
+        /**
+         * Called when the client goes away: cancels the downloads still running
+         * and stops the rembg process, whose queued inputs are then cleaned up by
+         * {@link #readResults()}.
+         */
+        void cancel() {
+            List<CompletableFuture<?>> running;
+            lock.lock();
+            try {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                running = new ArrayList<>(downloads);
+                downloads.clear();
+                if (process != null && !processDone) {
+                    try {
+                        processInput.close();
+                    } catch (IOException e) {
+                        logger.info("remove_background.py input already closed");
+                    }
+                    process.descendants().forEach(ProcessHandle::destroy);
+                    process.destroy();
+                }
+            } finally {
+                lock.unlock();
             }
+            running.forEach(download -> download.cancel(true));
+            metrics.cancelled("remove-background-batch", "disconnect");
+            logger.info("Client left, cancelled background removal batch of " + imageUrls.size() + " image(s)");
+        }
 
-            // Read image data
-            inputStream = connection.getInputStream();
-            outputStream = new ByteArrayOutputStream(contentLength > 0 ? contentLength : 8192);
+        private void accept(int index, BackgroundRemovalCache.UrlEntry known, ImageDownloader.Download download) {
+            String imageUrl = imageUrls.get(index);
+            if (download.notModified()) {
+                String cached = cache.get(known.sha256());
+                if (cached != null) {
+                    emitResult(index, cached);
+                    return;
+                }
+            }
 
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
+            byte[] imageBytes = download.bytes();
+            String sha256 = BackgroundRemovalCache.sha256(imageBytes);
+            cache.putUrl(imageUrl, new BackgroundRemovalCache.UrlEntry(download.etag(), download.lastModified(), sha256));
+            String cached = cache.get(sha256);
+            if (cached != null) {
+                emitResult(index, cached);
+                return;
             }
+            submit(index, sha256, imageBytes);
+        }
 
-            return outputStream.toByteArray();
+        private void submit(int index, String sha256, byte[] imageBytes) {
+            lock.lock();
+            try {
+                if (cancelled) {
+                    return;
+                }
+                List<Integer> waiting = pending.get(sha256);
+                if (waiting != null) {
+                    // Same content already queued in this batch
+                    waiting.add(index);
+                    return;
+                }
+                write(index, sha256, imageBytes);
+            } finally {
+                lock.unlock();
+            }
+        }
 
-        } catch (MalformedURLException e) {
-            throw new IOException("Invalid URL format: " + imageUrl, e);
-        } finally {
-            // Clean up resources
-            if (inputStream != null) {
-                try {
-                    inputStream.close();
+        private void write(int index, String sha256, byte[] imageBytes) {
+            Path tempPath = Paths.get(tempDir);
+            Path inputPath = tempPath.resolve(UUID.randomUUID() + ".jpg");
+            Path outputPath = tempPath.resolve("processed_" + UUID.randomUUID() + ".png");
+            try {
+                if (process == null) {
+                    startProcess();
+                } else if (processDone) {
+                    throw new IOException("rembg process exited");
+                }
+                Files.createDirectories(tempPath);
+                Files.write(inputPath, imageBytes);
+
+                List<Integer> waiting = new ArrayList<>();
+                waiting.add(index);
+                pending.put(sha256, waiting);
+                pendingFiles.put(sha256, List.of(inputPath, outputPath));
+
+                ObjectNode request = objectMapper.createObjectNode();
+                request.put("id", sha256);
+                request.put("input", inputPath.toString());
+                request.put("output", outputPath.toString());
+                processInput.write(objectMapper.writeValueAsString(request));
+                processInput.newLine();
+                processInput.flush();
+            } catch (IOException e) {
+                pending.remove(sha256);
+                pendingFiles.remove(sha256);
+                deleteQuietly(inputPath);
+                deleteQuietly(outputPath);
+                emitError(index, e.getMessage());
+            }
+        }
+
+        private void startProcess() throws IOException {
+            ProcessBuilder pb = new ProcessBuilder(pythonExecutable, removeBackgroundScript, "--batch");
+            tracked = metrics.start("remove-background-batch", pb);
+            process = tracked.process();
+            processInput = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            processIoExecutor.execute(this::readResults);
+            processIoExecutor.execute(() -> {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        logger.info("Python remove_background.py output: " + line);
+                    }
                 } catch (IOException e) {
-                    // Log but don't throw
-                    logger.info("Error closing input stream");
+                    logger.info("remove_background.py log stream closed");
+                }
+            });
+        }
+
+        private void readResults() {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    tracked.outputSeen();
+                    JsonNode result = parseResult(objectMapper, line);
+                    if (result == null) {
+                        // Library chatter that slipped onto stdout; one stray line must not end the batch
+                        logger.info("Python remove_background.py output: " + line);
+                        continue;
+                    }
+                    String sha256 = result.path("id").asText();
+                    List<Integer> waiting;
+                    lock.lock();
+                    try {
+                        waiting = pending.remove(sha256);
+                        pendingFiles.remove(sha256);
+                    } finally {
+                        lock.unlock();
+                    }
+                    if (waiting == null) {
+                        continue;
+                    }
+                    if ("ok".equals(result.path("status").asText())) {
+                        String cached;
+                        try {
+                            cached = cache.put(sha256, Paths.get(result.path("output").asText()));
+                        } catch (IOException e) {
+                            waiting.forEach(index -> emitError(index, e.getMessage()));
+                            continue;
+                        }
+                        waiting.forEach(index -> emitResult(index, cached));
+                    } else {
+                        String error = result.path("error").asText("Background removal failed");
+                        waiting.forEach(index -> emitError(index, error));
+                    }
+                }
+            } catch (IOException e) {
+                logger.warning("Error reading remove_background.py batch output: " + e.getMessage());
+            } finally {
+                lock.lock();
+                try {
+                    pending.values().forEach(waiting -> waiting.forEach(index -> emitError(index, "rembg process exited")));
+                    pending.clear();
+                    pendingFiles.values().forEach(files -> files.forEach(this::deleteQuietly));
+                    pendingFiles.clear();
+                    processDone = true;
+                    if (downloadsDone) {
+                        sink.complete();
+                    }
+                } finally {
+                    lock.unlock();
                 }
             }
-            if (connection != null) {
-                connection.disconnect();
+        }
+
+        private void deleteQuietly(Path file) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warning("Could not delete " + file + ": " + e.getMessage());
             }
-            if (outputStream != null) {
-                try {
-                    outputStream.close();
-                } catch (IOException e) {
-                    logger.info("Error closing output stream");
+        }
+
+        private void finishDownloads() {
+            lock.lock();
+            try {
+                downloadsDone = true;
+                if (cancelled) {
+                    return;
+                }
+                if (process == null || processDone) {
+                    sink.complete();
+                    return;
                 }
+                // EOF tells the script to exit once the queued images are done
+                processInput.close();
+            } catch (IOException e) {
+                process.destroy();
+            } finally {
+                lock.unlock();
             }
         }
+
+        private void emitResult(int index, String blobKey) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("index", index);
+            item.put("imageUrl", imageUrls.get(index));
+            item.put("processedImageUrl", cache.url(blobKey));
+            sink.next(item);
+        }
+
+        private void emitError(int index, String error) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("index", index);
+            item.put("imageUrl", imageUrls.get(index));
+            item.put("error", error);
+            sink.next(item);
+        }
     }
-}
\ No newline at end of file
+}
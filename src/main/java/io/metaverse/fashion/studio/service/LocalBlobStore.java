@@ -0,0 +1,172 @@
+package io.metaverse.fashion.studio.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Content-addressed blob store on the local filesystem. A blob with key
+ * {@code abcdef...png} lives at {@code <dir>/ab/cd/abcdef...png}; the two
+ * directory levels keep any one directory small as the store grows. Writes
+ * go to {@code <dir>/tmp} while being hashed and are then renamed into place,
+ * so readers never see a partial blob.
+ */
+@Component
+@ConditionalOnProperty(name = "blob.store.type", havingValue = "local", matchIfMissing = true)
+public class LocalBlobStore implements BlobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalBlobStore.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final Path tmp;
+    private final String baseUrl;
+
+    public LocalBlobStore(@Value("${blob.store.dir:data/blobs}") String directory,
+                          @Value("${blob.store.base-url}") String baseUrl) throws IOException {
+        // Blob URLs are stored with designs and loaded by the frontend from another origin
+        if (!baseUrl.startsWith("http://") && !baseUrl.startsWith("https://")) {
+            throw new IllegalStateException("blob.store.base-url must be an absolute http(s) URL: " + baseUrl);
+        }
+        this.root = Paths.get(directory).toAbsolutePath();
+        this.tmp = root.resolve("tmp");
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        Files.createDirectories(tmp);
+        log.info("Local blob store at {}", root);
+    }
+
+    @Override
+    public String put(InputStream content, String extension) throws IOException {
+        Path temp = tmp.resolve(UUID.randomUUID() + ".part");
+        MessageDigest digest = sha256();
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+            }
+            return store(temp, HexFormat.of().formatHex(digest.digest()), extension);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public String putFile(Path file, String extension) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        try {
+            return store(file, HexFormat.of().formatHex(digest.digest()), extension);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private String store(Path source, String sha256, String extension) throws IOException {
+        String key = sha256 + "." + extension.toLowerCase(Locale.ROOT);
+        if (!BlobStore.isValidKey(key)) {
+            throw new IllegalArgumentException("Invalid blob extension: " + extension);
+        }
+        Path target = pathFor(key);
+        if (Files.exists(target)) {
+            log.debug("Blob {} already stored", key);
+            return key;
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            // Same filesystem, so this is a rename; fall back to a copy if the source lives elsewhere
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Stored concurrently by another writer with the same content
+        } catch (IOException e) {
+            Path staged = tmp.resolve(UUID.randomUUID() + ".part");
+            Files.copy(source, staged);
+            try {
+                Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(staged);
+            }
+        }
+        return key;
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return BlobStore.isValidKey(key) && Files.exists(pathFor(key));
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(checkedPath(key));
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return Files.size(checkedPath(key));
+    }
+
+    @Override
+    public Path localPath(String key) throws IOException {
+        Path path = checkedPath(key);
+        if (!Files.exists(path)) {
+            throw new NoSuchFileException(key);
+        }
+        return path;
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        return Files.deleteIfExists(checkedPath(key));
+    }
+
+    @Override
+    public String url(String key) {
+        return baseUrl + key;
+    }
+
+    private Path checkedPath(String key) {
+        if (!BlobStore.isValidKey(key)) {
+            throw new IllegalArgumentException("Invalid blob key: " + key);
+        }
+        return pathFor(key);
+    }
+
+    private Path pathFor(String key) {
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package io.metaverse.fashion.studio.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process port of outfit_suggestion.py.
+ *
+ * Inputs are featurised the same way as the script's HashingVectorizer
+ * (lowercase, English stop words removed, 1-2 grams, murmur3 hashed into
+ * 2^18 buckets, l2 normalised) and scored by a multinomial logistic regression
+ * trained on unique_outfit_data_large.csv at startup. Only buckets seen during
+ * training carry weight, so they are kept as a sorted int[] and the weights as
+ * a flat float[bucket * classes + class] matrix. Only created for
+ * outfit.classifier.engine=jvm, so the python engine needs no dataset.
+ */
+@Component
+@ConditionalOnProperty(name = "outfit.classifier.engine", havingValue = "jvm", matchIfMissing = true)
+public class OutfitClassifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutfitClassifier.class);
+
+    private static final int N_FEATURES = 1 << 18;
+    private static final Pattern TOKEN = Pattern.compile("(?U)\\b\\w\\w+\\b");
+
+    // scikit-learn's ENGLISH_STOP_WORDS, so hashed buckets line up with the Python model
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "about", "above", "across", "after", "afterwards", "again", "against", "all", "almost",
+            "alone", "along", "already", "also", "although", "always", "am", "among", "amongst", "amoungst",
+            "amount", "an", "and", "another", "any", "anyhow", "anyone", "anything", "anyway", "anywhere",
+            "are", "around", "as", "at", "back", "be", "became", "because", "become", "becomes", "becoming",
+            "been", "before", "beforehand", "behind", "being", "below", "beside", "besides", "between",
+            "beyond", "bill", "both", "bottom", "but", "by", "call", "can", "cannot", "cant", "co", "con",
+            "could", "couldnt", "cry", "de", "describe", "detail", "do", "done", "down", "due", "during",
+            "each", "eg", "eight", "either", "eleven", "else", "elsewhere", "empty", "enough", "etc", "even",
+            "ever", "every", "everyone", "everything", "everywhere", "except", "few", "fifteen", "fifty",
+            "fill", "find", "fire", "first", "five", "for", "former", "formerly", "forty", "found", "four",
+            "from", "front", "full", "further", "get", "give", "go", "had", "has", "hasnt", "have", "he",
+            "hence", "her", "here", "hereafter", "hereby", "herein", "hereupon", "hers", "herself", "him",
+            "himself", "his", "how", "however", "hundred", "i", "ie", "if", "in", "inc", "indeed",
+            "interest", "into", "is", "it", "its", "itself", "keep", "last", "latter", "latterly", "least",
+            "less", "ltd", "made", "many", "may", "me", "meanwhile", "might", "mill", "mine", "more",
+            "moreover", "most", "mostly", "move", "much", "must", "my", "myself", "name", "namely",
+            "neither", "never", "nevertheless", "next", "nine", "no", "nobody", "none", "noone", "nor",
+            "not", "nothing", "now", "nowhere", "of", "off", "often", "on", "once", "one", "only", "onto",
+            "or", "other", "others", "otherwise", "our", "ours", "ourselves", "out", "over", "own", "part",
+            "per", "perhaps", "please", "put", "rather", "re", "same", "see", "seem", "seemed", "seeming",
+            "seems", "serious", "several", "she", "should", "show", "side", "since", "sincere", "six",
+            "sixty", "so", "some", "somehow", "someone", "something", "sometime", "sometimes", "somewhere",
+            "still", "such", "system", "take", "ten", "than", "that", "the", "their", "them", "themselves",
+            "then", "thence", "there", "thereafter", "thereby", "therefore", "therein", "thereupon", "these",
+            "they", "thick", "thin", "third", "this", "those", "though", "three", "through", "throughout",
+            "thru", "thus", "to", "together", "too", "top", "toward", "towards", "twelve", "twenty", "two",
+            "un", "under", "until", "up", "upon", "us", "very", "via", "was", "we", "well", "were", "what",
+            "whatever", "when", "whence", "whenever", "where", "whereafter", "whereas", "whereby", "wherein",
+            "whereupon", "wherever", "whether", "which", "while", "whither", "who", "whoever", "whole",
+            "whom", "whose", "why", "will", "with", "within", "without", "would", "yet", "you", "your",
+            "yours", "yourself", "yourselves"
+    );
+
+    @Value("${outfit.dataset.path:src/main/resources/python/unique_outfit_data_large.csv}")
+    private String datasetPath;
+
+    @Value("${outfit.classifier.epochs:15}")
+    private int epochs;
+
+    @Value("${outfit.classifier.learning-rate:0.5}")
+    private float learningRate;
+
+    private volatile Model model;
+
+    @PostConstruct
+    public void train() throws IOException {
+        long start = System.nanoTime();
+        List<String> texts = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(datasetPath), StandardCharsets.UTF_8)) {
+            String line = reader.readLine(); // occasion_text,outfit,gender
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split(",", -1);
+                if (columns.length < 3 || columns[1].isBlank()) {
+                    continue;
+                }
+                texts.add(columns[0] + " " + columns[2]);
+                labels.add(columns[1].trim());
+            }
+        }
+        if (texts.isEmpty()) {
+            throw new IOException("Outfit dataset is empty: " + datasetPath);
+        }
+
+        String[] classes = new TreeSet<>(labels).toArray(new String[0]);
+        Map<String, Integer> classIndex = new HashMap<>();
+        for (int c = 0; c < classes.length; c++) {
+            classIndex.put(classes[c], c);
+        }
+
+        List<Map<Integer, Float>> hashedRows = new ArrayList<>(texts.size());
+        TreeSet<Integer> buckets = new TreeSet<>();
+        for (String text : texts) {
+            Map<Integer, Float> row = hash(text);
+            hashedRows.add(row);
+            buckets.addAll(row.keySet());
+        }
+        int[] vocabulary = buckets.stream().mapToInt(Integer::intValue).toArray();
+
+        int rows = texts.size();
+        int[][] rowFeatures = new int[rows][];
+        float[][] rowValues = new float[rows][];
+        int[] rowLabels = new int[rows];
+        for (int r = 0; r < rows; r++) {
+            Map<Integer, Float> row = hashedRows.get(r);
+            rowFeatures[r] = new int[row.size()];
+            rowValues[r] = new float[row.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Float> entry : row.entrySet()) {
+                rowFeatures[r][i] = Arrays.binarySearch(vocabulary, entry.getKey());
+                rowValues[r][i] = entry.getValue();
+                i++;
+            }
+            rowLabels[r] = classIndex.get(labels.get(r));
+        }
+
+        int numClasses = classes.length;
+        float[] weights = new float[vocabulary.length * numClasses];
+        float[] bias = new float[numClasses];
+        float[] scores = new float[numClasses];
+        int[] order = new int[rows];
+        for (int r = 0; r < rows; r++) {
+            order[r] = r;
+        }
+        Random random = new Random(42);
+
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            for (int i = rows - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = order[i];
+                order[i] = order[j];
+                order[j] = tmp;
+            }
+            float rate = learningRate / (1 + epoch);
+            for (int r : order) {
+                score(weights, bias, numClasses, rowFeatures[r], rowValues[r], scores);
+                softmax(scores);
+                scores[rowLabels[r]] -= 1f;
+                for (int c = 0; c < numClasses; c++) {
+                    bias[c] -= rate * scores[c];
+                }
+                for (int k = 0; k < rowFeatures[r].length; k++) {
+                    int offset = rowFeatures[r][k] * numClasses;
+                    float step = rate * rowValues[r][k];
+                    for (int c = 0; c < numClasses; c++) {
+                        weights[offset + c] -= step * scores[c];
+                    }
+                }
+            }
+        }
+
+        model = new Model(vocabulary, weights, bias, classes);
+        logger.info("Trained outfit classifier on {} rows ({} outfits, {} active features) in {} ms",
+                rows, numClasses, vocabulary.length, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public String predict(String occasion, String gender) {
+        Model current = model;
+        if (current == null) {
+            throw new RuntimeException("Outfit classifier is not trained");
+        }
+
+        Map<Integer, Float> row = hash(occasion + " " + gender);
+        int[] features = new int[row.size()];
+        float[] values = new float[row.size()];
+        int n = 0;
+        for (Map.Entry<Integer, Float> entry : row.entrySet()) {
+            int index = Arrays.binarySearch(current.vocabulary, entry.getKey());
+            if (index >= 0) {
+                features[n] = index;
+                values[n] = entry.getValue();
+                n++;
+            }
+        }
+
+        int numClasses = current.classes.length;
+        float[] scores = new float[numClasses];
+        score(current.weights, current.bias, numClasses,
+                Arrays.copyOf(features, n), Arrays.copyOf(values, n), scores);
+
+        int best = 0;
+        for (int c = 1; c < numClasses; c++) {
+            if (scores[c] > scores[best]) {
+                best = c;
+            }
+        }
+        return current.classes[best];
+    }
+
+    private static void score(float[] weights, float[] bias, int numClasses,
+                              int[] features, float[] values, float[] scores) {
+        System.arraycopy(bias, 0, scores, 0, numClasses);
+        for (int k = 0; k < features.length; k++) {
+            int offset = features[k] * numClasses;
+            float value = values[k];
+            for (int c = 0; c < numClasses; c++) {
+                scores[c] += weights[offset + c] * value;
+            }
+        }
+    }
+
+    private static void softmax(float[] scores) {
+        float max = Float.NEGATIVE_INFINITY;
+        for (float s : scores) {
+            max = Math.max(max, s);
+        }
+        float sum = 0f;
+        for (int c = 0; c < scores.length; c++) {
+            scores[c] = (float) Math.exp(scores[c] - max);
+            sum += scores[c];
+        }
+        for (int c = 0; c < scores.length; c++) {
+            scores[c] /= sum;
+        }
+    }
+
+    /**
+     * HashingVectorizer(n_features=2**18, alternate_sign=False, ngram_range=(1, 2),
+     * stop_words='english') for a single document, as bucket -> l2 normalised count.
+     */
+    static Map<Integer, Float> hash(String text) {
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            String token = matcher.group();
+            if (!STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+
+        Map<Integer, Float> counts = new TreeMap<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            counts.merge(bucket(tokens.get(i)), 1f, Float::sum);
+            if (i + 1 < tokens.size()) {
+                counts.merge(bucket(tokens.get(i) + " " + tokens.get(i + 1)), 1f, Float::sum);
+            }
+        }
+
+        double norm = 0;
+        for (float count : counts.values()) {
+            norm += count * count;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            counts.replaceAll((bucket, count) -> count * scale);
+        }
+        return counts;
+    }
+
+    private static int bucket(String term) {
+        return (int) (Math.abs((long) murmur3(term.getBytes(StandardCharsets.UTF_8))) % N_FEATURES);
+    }
+
+    // MurmurHash3 x86_32 with seed 0, matching sklearn.utils.murmurhash3_32
+    @SuppressWarnings("fallthrough")
+    static int murmur3(byte[] data) {
+        final int c1 = 0xcc9e2d51;
+        final int c2 = 0x1b873593;
+        int h = 0;
+        int blocks = data.length / 4;
+
+        for (int i = 0; i < blocks; i++) {
+            int k = (data[i * 4] & 0xff)
+                    | (data[i * 4 + 1] & 0xff) << 8
+                    | (data[i * 4 + 2] & 0xff) << 16
+                    | (data[i * 4 + 3] & 0xff) << 24;
+            k *= c1;
+            k = Integer.rotateLeft(k, 15);
+            k *= c2;
+            h ^= k;
+            h = Integer.rotateLeft(h, 13);
+            h = h * 5 + 0xe6546b64;
+        }
+
+        int k = 0;
+        int tail = blocks * 4;
+        switch (data.length & 3) {
+            case 3:
+                k ^= (data[tail + 2] & 0xff) << 16;
+                // fall through
+            case 2:
+                k ^= (data[tail + 1] & 0xff) << 8;
+                // fall through
+            case 1:
+                k ^= data[tail] & 0xff;
+                k *= c1;
+                k = Integer.rotateLeft(k, 15);
+                k *= c2;
+                h ^= k;
+        }
+
+        h ^= data.length;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static final class Model {
+        private final int[] vocabulary;
+        private final float[] weights;
+        private final float[] bias;
+        private final String[] classes;
+
+        private Model(int[] vocabulary, float[] weights, float[] bias, String[] classes) {
+            this.vocabulary = vocabulary;
+            this.weights = weights;
+            this.bias = bias;
+            this.classes = classes;
+        }
+    }
+}
@@ -9,8 +9,8 @@ import org.springframework.stereotype.Service;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 @Service
@@ -20,23 +20,46 @@ public class OutfitSuggestionService {
     @Value("${python.outfitscript.path}")
     private String pythonScriptPath;
 
+    @Value("${python.executable:python}")
+    private String pythonExecutable;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
+    // Present only when outfit.classifier.engine=jvm; otherwise the script is run
+    private final OutfitClassifier outfitClassifier;
+    private final PythonProcessMetrics metrics;
+
+    public OutfitSuggestionService(Optional<OutfitClassifier> outfitClassifier, PythonProcessMetrics metrics) {
+        this.outfitClassifier = outfitClassifier.orElse(null);
+        this.metrics = metrics;
+    }
 
     public String getOutfitSuggestion(String occasion, String gender) throws IOException {
+        if (outfitClassifier != null) {
+            long started = System.nanoTime();
+            String suggestion = outfitClassifier.predict(occasion, gender);
+            metrics.recordStage("outfit-suggestion", "classify", started);
+            logger.debug("Classifier suggestion for occasion: {} and gender: {} -> {}", occasion, gender, suggestion);
+            return suggestion;
+        }
+        return runPythonScript(occasion, gender);
+    }
+
+    private String runPythonScript(String occasion, String gender) {
         try {
             logger.info("Executing Python script for occasion: {} and gender: {}", occasion, gender);
 
             ProcessBuilder pb = new ProcessBuilder(
-                    "python",
+                    pythonExecutable,
                     pythonScriptPath,
                     occasion,
                     gender
             );
 
             pb.redirectErrorStream(true);
-            Process process = pb.start();
+            PythonProcessMetrics.TrackedProcess tracked = metrics.start("outfit-suggestion", pb);
+            Process process = tracked.process();
 
-            String processOutput = readStream(process.getInputStream());
+            String processOutput = readStream(tracked);
             logger.debug("Python script output:\n{}", processOutput);
 
             if (!process.waitFor(1, TimeUnit.MINUTES)) {
@@ -63,11 +86,12 @@ public class OutfitSuggestionService {
         }
     }
 
-    private String readStream(InputStream inputStream) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
+    private String readStream(PythonProcessMetrics.TrackedProcess tracked) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(tracked.process().getInputStream()))) {
             StringBuilder builder = new StringBuilder();
             String line;
             while ((line = reader.readLine()) != null) {
+                tracked.outputSeen();
                 builder.append(line);
             }
             return builder.toString();
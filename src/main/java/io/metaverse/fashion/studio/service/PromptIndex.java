@@ -0,0 +1,173 @@
+package io.metaverse.fashion.studio.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * In-memory near-duplicate index over generation prompts.
+ *
+ * A prompt is reduced to the set of its words, lower-cased, without punctuation
+ * and without filler words, so "a red casual shirt" and "casual shirt, red" come
+ * out the same. Each set gets a MinHash signature of {@link #BANDS} x {@link #ROWS}
+ * values, and every band is hashed into a bucket (locality-sensitive hashing), so
+ * a lookup only compares against prompts sharing at least one bucket rather than
+ * the whole index. Candidates are then confirmed with their exact Jaccard
+ * similarity. Entries are partitioned by a caller-supplied key (style and gender),
+ * and prompts in different partitions never match.
+ */
+public class PromptIndex {
+
+    static final int BANDS = 16;
+    static final int ROWS = 4;
+
+    private static final Set<String> FILLER = Set.of(
+            "a", "an", "the", "and", "or", "with", "of", "in", "on", "for", "to", "at", "by", "some", "very",
+            "please", "me", "my", "i", "want", "would", "like", "make", "create", "generate", "design");
+
+    private static final long[] SEEDS = new long[BANDS * ROWS];
+
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < SEEDS.length; i++) {
+            seed = mix(seed + i);
+            SEEDS[i] = seed;
+        }
+    }
+
+    /** An indexed prompt and how similar it is to the query, from 0 to 1. */
+    public record Match(long id, double similarity) {
+    }
+
+    private record Entry(long id, String[] words) {
+    }
+
+    // partition -> band bucket -> entries
+    private final Map<String, Map<Long, List<Entry>>> partitions = new HashMap<>();
+    private int size;
+
+    public synchronized void add(long id, String partition, String prompt) {
+        String[] words = words(prompt);
+        if (words.length == 0) {
+            return;
+        }
+        Entry entry = new Entry(id, words);
+        Map<Long, List<Entry>> buckets = partitions.computeIfAbsent(partition, p -> new HashMap<>());
+        for (long bucket : buckets(words)) {
+            buckets.computeIfAbsent(bucket, b -> new ArrayList<>(1)).add(entry);
+        }
+        size++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * The most similar indexed prompt in the partition with a Jaccard similarity
+     * of at least {@code threshold}; the newest (highest id) wins ties.
+     */
+    public Optional<Match> findSimilar(String partition, String prompt, double threshold) {
+        String[] words = words(prompt);
+        if (words.length == 0) {
+            return Optional.empty();
+        }
+        long[] queryBuckets = buckets(words);
+
+        List<Entry> candidates = new ArrayList<>();
+        synchronized (this) {
+            Map<Long, List<Entry>> buckets = partitions.get(partition);
+            if (buckets == null) {
+                return Optional.empty();
+            }
+            Set<Entry> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (long bucket : queryBuckets) {
+                for (Entry entry : buckets.getOrDefault(bucket, List.of())) {
+                    if (seen.add(entry)) {
+                        candidates.add(entry);
+                    }
+                }
+            }
+        }
+
+        Match best = null;
+        for (Entry candidate : candidates) {
+            double similarity = jaccard(words, candidate.words());
+            if (similarity >= threshold && (best == null || similarity > best.similarity()
+                    || (similarity == best.similarity() && candidate.id() > best.id()))) {
+                best = new Match(candidate.id(), similarity);
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    /** Distinct meaningful words of a prompt, sorted, so word order does not matter. */
+    static String[] words(String prompt) {
+        if (prompt == null) {
+            return new String[0];
+        }
+        TreeSet<String> words = new TreeSet<>();
+        for (String word : prompt.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty() && !FILLER.contains(word)) {
+                words.add(word);
+            }
+        }
+        return words.toArray(new String[0]);
+    }
+
+    private static long[] buckets(String[] words) {
+        long[] signature = new long[SEEDS.length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (String word : words) {
+            long hash = mix(word.hashCode());
+            for (int i = 0; i < SEEDS.length; i++) {
+                signature[i] = Math.min(signature[i], mix(hash ^ SEEDS[i]));
+            }
+        }
+
+        long[] buckets = new long[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long bucket = band;
+            for (int row = 0; row < ROWS; row++) {
+                bucket = mix(bucket * 31 + signature[band * ROWS + row]);
+            }
+            buckets[band] = bucket;
+        }
+        return buckets;
+    }
+
+    /** Both arrays are sorted and distinct, so a merge walk counts the intersection. */
+    static double jaccard(String[] a, String[] b) {
+        int i = 0;
+        int j = 0;
+        int common = 0;
+        while (i < a.length && j < b.length) {
+            int cmp = a[i].compareTo(b[j]);
+            if (cmp == 0) {
+                common++;
+                i++;
+                j++;
+            } else if (cmp < 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) common / (a.length + b.length - common);
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
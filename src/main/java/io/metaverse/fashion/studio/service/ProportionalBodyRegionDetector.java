@@ -0,0 +1,26 @@
+package io.metaverse.fashion.studio.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.util.Optional;
+
+/**
+ * Assumes a centred, front-facing portrait and places the torso at fixed
+ * proportions of the frame. No detection cost at all, for controlled photo
+ * setups or when OpenCV is not available.
+ */
+@Component
+@ConditionalOnProperty(name = "tryon.detector", havingValue = "proportional")
+public class ProportionalBodyRegionDetector implements BodyRegionDetector {
+
+    @Override
+    public Optional<Region> detect(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Region region = new Region((int) (width * 0.2), (int) (height * 0.3),
+                (int) (width * 0.8), (int) (height * 0.9));
+        return region.width() > 0 && region.height() > 0 ? Optional.of(region) : Optional.empty();
+    }
+}
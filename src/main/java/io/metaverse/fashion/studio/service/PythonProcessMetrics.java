@@ -0,0 +1,164 @@
+package io.metaverse.fashion.studio.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Meters for the Python scripts the services shell out to, all tagged with an
+ * {@code operation} name and scraped from /actuator/prometheus:
+ *
+ * <ul>
+ *   <li>{@code python.process.spawn} - time for {@link ProcessBuilder#start()} to return</li>
+ *   <li>{@code python.process.first.output} - spawn to the first line or frame the script writes</li>
+ *   <li>{@code python.process.duration} - spawn to exit</li>
+ *   <li>{@code python.process.exits} - exits by {@code code}, {@code spawn-failed} if it never started</li>
+ *   <li>{@code python.process.active} - processes currently running</li>
+ *   <li>{@code python.operation.stage} - named steps around the scripts (model load, store, save, ...)</li>
+ *   <li>{@code python.operation.cancelled} - operations abandoned before they finished, by {@code reason}</li>
+ *   <li>{@code cam.frames} / {@code cam.frame.bytes} - webcam frames read from the try-on
+ *       script and their JPEG size; {@code rate(cam_frames_total[1m])} is frames/sec</li>
+ * </ul>
+ *
+ * Timers publish percentile histograms so quantiles can be aggregated across instances.
+ */
+@Component
+public class PythonProcessMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<String, AtomicInteger> active = new ConcurrentHashMap<>();
+    private final Counter camFrames;
+    private final Counter camFramesDropped;
+    private final DistributionSummary camFrameBytes;
+
+    public PythonProcessMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.camFrames = Counter.builder("cam.frames")
+                .description("Frames read from the webcam try-on script")
+                .register(registry);
+        this.camFramesDropped = Counter.builder("cam.frames.dropped")
+                .description("Frames replaced before a slow subscriber acknowledged the previous one")
+                .register(registry);
+        this.camFrameBytes = DistributionSummary.builder("cam.frame.bytes")
+                .description("JPEG size of webcam try-on frames")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Starts the process and records its spawn time. Duration, exit code and
+     * the active gauge are recorded when it exits, however it exits.
+     */
+    public TrackedProcess start(String operation, ProcessBuilder builder) throws IOException {
+        long started = System.nanoTime();
+        Process process;
+        try {
+            process = builder.start();
+        } catch (IOException e) {
+            exits(operation, "spawn-failed").increment();
+            throw e;
+        }
+        timer("python.process.spawn", "Time to start a Python process", operation)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+
+        AtomicInteger running = active(operation);
+        running.incrementAndGet();
+        process.onExit().thenAccept(exited -> {
+            running.decrementAndGet();
+            timer("python.process.duration", "Python process lifetime from spawn to exit", operation)
+                    .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            exits(operation, Integer.toString(exited.exitValue())).increment();
+        });
+        return new TrackedProcess(process, operation, started);
+    }
+
+    /** Records a step that started at {@code startedNanos} ({@link System#nanoTime()}). */
+    public void recordStage(String operation, String stage, long startedNanos) {
+        Timer.builder("python.operation.stage")
+                .description("Steps of Python-backed operations")
+                .tags("operation", operation, "stage", stage)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void cancelled(String operation, String reason) {
+        Counter.builder("python.operation.cancelled")
+                .description("Python-backed operations cancelled before they finished")
+                .tags("operation", operation, "reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    public void camFrame(int bytes) {
+        camFrames.increment();
+        camFrameBytes.record(bytes);
+    }
+
+    public void camFrameDropped() {
+        camFramesDropped.increment();
+    }
+
+    private Timer timer(String name, String description, String operation) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private Counter exits(String operation, String code) {
+        return Counter.builder("python.process.exits")
+                .description("Python process exits by exit code")
+                .tags("operation", operation, "code", code)
+                .register(registry);
+    }
+
+    private AtomicInteger active(String operation) {
+        return active.computeIfAbsent(operation, op -> {
+            AtomicInteger count = new AtomicInteger();
+            Gauge.builder("python.process.active", count, AtomicInteger::get)
+                    .description("Python processes currently running")
+                    .tag("operation", op)
+                    .register(registry);
+            return count;
+        });
+    }
+
+    /** A started process; call {@link #outputSeen()} whenever the script produces output. */
+    public final class TrackedProcess {
+        private final Process process;
+        private final String operation;
+        private final long started;
+        private final AtomicBoolean seen = new AtomicBoolean();
+
+        private TrackedProcess(Process process, String operation, long started) {
+            this.process = process;
+            this.operation = operation;
+            this.started = started;
+        }
+
+        public Process process() {
+            return process;
+        }
+
+        /** Records the first-output latency the first time it is called; later calls are free. */
+        public void outputSeen() {
+            if (!seen.get() && seen.compareAndSet(false, true)) {
+                timer("python.process.first.output", "Time from spawn to the first output of a Python process",
+                        operation).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
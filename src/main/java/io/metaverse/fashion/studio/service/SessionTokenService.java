@@ -0,0 +1,117 @@
+package io.metaverse.fashion.studio.service;
+
+import io.metaverse.fashion.studio.entity.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Issues and verifies stateless session tokens, so authenticated requests need
+ * no session store and no database lookup.
+ *
+ * A token is {@code base64url(userId:expiresAt:username) + "." + base64url(HMAC-SHA256)}.
+ * Every node sharing {@code auth.token.secret} accepts the tokens of the others.
+ * Without a configured secret a random one is generated, and tokens then only
+ * last until the next restart.
+ */
+@Component
+public class SessionTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionTokenService.class);
+    private static final String ALGORITHM = "HmacSHA256";
+
+    public record SessionToken(long userId, String username, Instant expiresAt) {
+    }
+
+    public record IssuedToken(String token, Instant expiresAt) {
+    }
+
+    private final Mac prototype;
+    private final Duration ttl;
+
+    public SessionTokenService(@Value("${auth.token.secret:}") String secret,
+                               @Value("${auth.token.ttl-minutes:720}") long ttlMinutes) {
+        byte[] key;
+        if (secret.isBlank()) {
+            log.warn("auth.token.secret is not set, using a random key; tokens will not survive a restart");
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+        } else {
+            key = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        try {
+            prototype = Mac.getInstance(ALGORITHM);
+            prototype.init(new SecretKeySpec(key, ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+    }
+
+    public IssuedToken issue(User user) {
+        Instant expiresAt = Instant.now().plus(ttl).truncatedTo(ChronoUnit.SECONDS);
+        String payload = user.getId() + ":" + expiresAt.getEpochSecond() + ":" + user.getUsername();
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String token = encoder.encodeToString(payloadBytes) + "." + encoder.encodeToString(sign(payloadBytes));
+        return new IssuedToken(token, expiresAt);
+    }
+
+    /**
+     * @return the token's claims, or empty if it is malformed, forged or expired
+     */
+    public Optional<SessionToken> verify(String token) {
+        int dot = token.indexOf('.');
+        if (dot < 0) {
+            return Optional.empty();
+        }
+        byte[] payloadBytes;
+        byte[] signature;
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            payloadBytes = decoder.decode(token.substring(0, dot));
+            signature = decoder.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (!MessageDigest.isEqual(sign(payloadBytes), signature)) {
+            return Optional.empty();
+        }
+
+        String[] parts = new String(payloadBytes, StandardCharsets.UTF_8).split(":", 3);
+        if (parts.length != 3) {
+            return Optional.empty();
+        }
+        try {
+            Instant expiresAt = Instant.ofEpochSecond(Long.parseLong(parts[1]));
+            if (expiresAt.isBefore(Instant.now())) {
+                return Optional.empty();
+            }
+            return Optional.of(new SessionToken(Long.parseLong(parts[0]), parts[2], expiresAt));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            // Cloning the keyed prototype skips the provider lookup and key setup
+            return ((Mac) prototype.clone()).doFinal(payload);
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HmacSHA256 cannot be cloned", e);
+        }
+    }
+}
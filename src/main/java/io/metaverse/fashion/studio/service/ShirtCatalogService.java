@@ -0,0 +1,162 @@
+package io.metaverse.fashion.studio.service;
+
+import io.metaverse.fashion.studio.entity.CatalogShirt;
+import io.metaverse.fashion.studio.repository.CatalogColor;
+import io.metaverse.fashion.studio.repository.CatalogShirtRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Persistent shirt catalog. Features are extracted once at ingest and stored;
+ * the average colours are kept in a {@link ColorIndex} so similarity queries
+ * never touch the database or rerun k-means for catalog items.
+ */
+@Service
+public class ShirtCatalogService {
+
+    private static final Logger log = LoggerFactory.getLogger(ShirtCatalogService.class);
+
+    private final CatalogShirtRepository repository;
+    private final ShirtScorer shirtScorer;
+    private final BlobStore blobStore;
+    private final ColorIndex colorIndex = new ColorIndex();
+
+    public ShirtCatalogService(CatalogShirtRepository repository, ShirtScorer shirtScorer, BlobStore blobStore) {
+        this.repository = repository;
+        this.shirtScorer = shirtScorer;
+        this.blobStore = blobStore;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadIndex() {
+        long started = System.nanoTime();
+        long[] ids = new long[1024];
+        float[] coords = new float[1024 * 3];
+        int size = 0;
+        try (Stream<CatalogColor> colors = repository.streamAllColors()) {
+            Iterator<CatalogColor> iterator = colors.iterator();
+            while (iterator.hasNext()) {
+                CatalogColor color = iterator.next();
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                    coords = Arrays.copyOf(coords, size * 2 * 3);
+                }
+                ids[size] = color.id();
+                coords[size * 3] = (float) color.avgRed();
+                coords[size * 3 + 1] = (float) color.avgGreen();
+                coords[size * 3 + 2] = (float) color.avgBlue();
+                size++;
+            }
+        }
+        colorIndex.load(ids, coords, size);
+        log.info("Loaded {} catalog shirts into the colour index in {} ms", size, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public Map<String, Object> ingest(MultipartFile image, String name, String platform, Double price,
+                                      String description, String imageUrl) throws IOException {
+        byte[] imageBytes = image.getBytes();
+        ShirtScorer.Features features = shirtScorer.extractFeatures(
+                "catalog", image.getOriginalFilename(), imageBytes,
+                platform, price != null ? price : 1000.0, description);
+        if (imageUrl == null || imageUrl.isBlank()) {
+            imageUrl = blobStore.url(blobStore.put(new ByteArrayInputStream(imageBytes),
+                    BlobStore.extensionOf(image.getOriginalFilename(), "jpg")));
+        }
+
+        CatalogShirt shirt = new CatalogShirt();
+        shirt.setName(name);
+        shirt.setPlatform(features.platform());
+        shirt.setPrice(features.price());
+        shirt.setDescription(description);
+        shirt.setImageUrl(imageUrl);
+        shirt.setMaterial(features.material());
+        shirt.setAvgRed(features.avgColor()[0]);
+        shirt.setAvgGreen(features.avgColor()[1]);
+        shirt.setAvgBlue(features.avgColor()[2]);
+        shirt.setDominantColors(Arrays.stream(features.colors())
+                .map(c -> c[0] + "," + c[1] + "," + c[2])
+                .collect(Collectors.joining(";")));
+        shirt = repository.save(shirt);
+
+        colorIndex.add(shirt.getId(), (float) shirt.getAvgRed(), (float) shirt.getAvgGreen(), (float) shirt.getAvgBlue());
+        return toMap(shirt);
+    }
+
+    public Optional<Map<String, Object>> getShirt(Long id) {
+        return repository.findById(id).map(this::toMap);
+    }
+
+    /**
+     * Top-k catalog shirts whose average colour is closest to the uploaded image's.
+     * Only the mean colour is computed for the query, not the full feature set.
+     */
+    public Map<String, Object> findSimilar(MultipartFile image, int k) throws IOException {
+        double[] avg = shirtScorer.averageColor(image.getOriginalFilename(), image.getBytes());
+        Map<String, Object> response = findSimilar((float) avg[0], (float) avg[1], (float) avg[2], k);
+        response.put("queryColor", avg);
+        return response;
+    }
+
+    public Map<String, Object> findSimilar(String hexColor, int k) {
+        int[] rgb = ShirtRecommendationService.parseHexColor(hexColor);
+        Map<String, Object> response = findSimilar(rgb[0], rgb[1], rgb[2], k);
+        response.put("queryColor", rgb);
+        return response;
+    }
+
+    private Map<String, Object> findSimilar(float r, float g, float b, int k) {
+        long started = System.nanoTime();
+        ColorIndex.Result nearest = colorIndex.nearest(r, g, b, k);
+        long searchMicros = (System.nanoTime() - started) / 1000;
+
+        List<Long> ids = new ArrayList<>(nearest.ids().length);
+        for (long id : nearest.ids()) {
+            ids.add(id);
+        }
+        Map<Long, CatalogShirt> shirts = repository.findAllById(ids).stream()
+                .collect(Collectors.toMap(CatalogShirt::getId, Function.identity()));
+
+        List<Map<String, Object>> items = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            CatalogShirt shirt = shirts.get(ids.get(i));
+            if (shirt == null) {
+                continue; // deleted behind the index's back
+            }
+            Map<String, Object> item = toMap(shirt);
+            item.put("distance", nearest.distances()[i]);
+            items.add(item);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("items", items);
+        response.put("catalogSize", colorIndex.size());
+        response.put("searchMicros", searchMicros);
+        return response;
+    }
+
+    private Map<String, Object> toMap(CatalogShirt shirt) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", shirt.getId());
+        map.put("name", shirt.getName());
+        map.put("platform", shirt.getPlatform());
+        map.put("price", shirt.getPrice());
+        map.put("material", shirt.getMaterial());
+        map.put("imageUrl", shirt.getImageUrl());
+        map.put("avgColor", new double[]{shirt.getAvgRed(), shirt.getAvgGreen(), shirt.getAvgBlue()});
+        map.put("dominantColors", shirt.getDominantColors());
+        return map;
+    }
+}
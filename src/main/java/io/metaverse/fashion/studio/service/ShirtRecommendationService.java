@@ -1,6 +1,7 @@
 package io.metaverse.fashion.studio.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -8,6 +9,10 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Service
 public class ShirtRecommendationService {
@@ -15,15 +20,22 @@ public class ShirtRecommendationService {
     @Value("${python.shirtrecommend.script}")
     private String pythonScriptPath;
 
-    private final String tempImageDir = "temp_images";
-    private final String pythonExecutable = "python";
+    @Value("${shirt.scoring.engine:jvm}")
+    private String engine;
 
-    public ShirtRecommendationService() {
-        try {
-            Files.createDirectories(Paths.get(tempImageDir));
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to create temp image directory", e);
-        }
+    @Value("${python.executable:python}")
+    private String pythonExecutable;
+
+    private final ShirtScorer shirtScorer;
+    private final BlobStore blobStore;
+    private final PythonProcessMetrics metrics;
+    private final ExecutorService featureExecutor =
+            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+    public ShirtRecommendationService(ShirtScorer shirtScorer, BlobStore blobStore, PythonProcessMetrics metrics) {
+        this.shirtScorer = shirtScorer;
+        this.blobStore = blobStore;
+        this.metrics = metrics;
     }
 
     public Map<String, Object> recommendShirts(
@@ -35,6 +47,19 @@ public class ShirtRecommendationService {
             throw new IllegalArgumentException("At least one shirt image must be provided");
         }
 
+        if ("jvm".equalsIgnoreCase(engine)) {
+            long started = System.nanoTime();
+            List<ShirtScorer.Features> shirts = new ArrayList<>();
+            if (image1 != null) {
+                shirts.add(extractFeatures("shirt_1", image1, platform1, price1, description1));
+            }
+            if (image2 != null) {
+                shirts.add(extractFeatures("shirt_2", image2, platform2, price2, description2));
+            }
+            metrics.recordStage("shirt-recommendation", "features", started);
+            return shirtScorer.recommend(shirts, ShirtScorer.Weights.DEFAULT);
+        }
+
         // Save images and build command
         List<String> command = new ArrayList<>();
         command.add(pythonExecutable);
@@ -72,12 +97,14 @@ public class ShirtRecommendationService {
         ProcessBuilder processBuilder = new ProcessBuilder(command);
         processBuilder.redirectErrorStream(true);
 
-        Process process = processBuilder.start();
+        PythonProcessMetrics.TrackedProcess tracked = metrics.start("shirt-recommendation", processBuilder);
+        Process process = tracked.process();
 
         StringBuilder output = new StringBuilder();
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
             String line;
             while ((line = reader.readLine()) != null) {
+                tracked.outputSeen();
                 output.append(line).append("\n");
             }
         }
@@ -90,11 +117,80 @@ public class ShirtRecommendationService {
         return new ObjectMapper().readValue(output.toString(), Map.class);
     }
 
+    /**
+     * Ranks any number of shirts. Image decoding and colour clustering run in
+     * parallel, one shirt per core. Missing per-shirt details fall back to the
+     * same defaults as the two-shirt comparison.
+     *
+     * @param preferredColor optional hex colour (e.g. "#1f3a93") that enables the colour component
+     */
+    public Map<String, Object> rankShirts(List<MultipartFile> images, List<String> platforms, List<Double> prices,
+                                          List<String> descriptions, ShirtScorer.Weights weights,
+                                          String preferredColor) throws IOException, InterruptedException {
+        if (images == null || images.isEmpty()) {
+            throw new IllegalArgumentException("At least one shirt image must be provided");
+        }
+        int[] preferred = preferredColor == null || preferredColor.isBlank() ? null : parseHexColor(preferredColor);
+
+        List<Future<ShirtScorer.Features>> futures = new ArrayList<>(images.size());
+        for (int i = 0; i < images.size(); i++) {
+            int index = i;
+            futures.add(featureExecutor.submit(() -> extractFeatures("shirt_" + (index + 1), images.get(index),
+                    valueAt(platforms, index), valueAt(prices, index), valueAt(descriptions, index))));
+        }
+
+        List<ShirtScorer.Features> shirts = new ArrayList<>(futures.size());
+        try {
+            for (Future<ShirtScorer.Features> future : futures) {
+                shirts.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("status", "success");
+        response.put("ranking", shirtScorer.rank(shirts, weights, preferred));
+        response.put("weights_used", weights.toMap());
+        return response;
+    }
+
+    private static <T> T valueAt(List<T> values, int index) {
+        return values != null && index < values.size() ? values.get(index) : null;
+    }
+
+    static int[] parseHexColor(String hex) {
+        String digits = hex.startsWith("#") ? hex.substring(1) : hex;
+        if (!digits.matches("[0-9a-fA-F]{6}")) {
+            throw new IllegalArgumentException("Invalid color, expected #RRGGBB: " + hex);
+        }
+        int rgb = Integer.parseInt(digits, 16);
+        return new int[]{rgb >> 16 & 0xff, rgb >> 8 & 0xff, rgb & 0xff};
+    }
+
+    @PreDestroy
+    public void stop() {
+        featureExecutor.shutdownNow();
+    }
+
+    private ShirtScorer.Features extractFeatures(String id, MultipartFile image, String platform,
+                                                 Double price, String description) throws IOException {
+        return shirtScorer.extractFeatures(
+                id,
+                image.getOriginalFilename(),
+                image.getBytes(),
+                platform != null ? platform : "Unknown",
+                price != null ? price : 1000.0,
+                description != null ? description : ""
+        );
+    }
+
     private String saveImage(String id, MultipartFile image) throws IOException {
-        String filename = id + "_" + System.currentTimeMillis() + ".jpg";
-        Path path = Paths.get(tempImageDir, filename);
-        image.transferTo(path);
-        path.toFile().deleteOnExit();
-        return path.toAbsolutePath().toString();
+        String key;
+        try (InputStream in = image.getInputStream()) {
+            key = blobStore.put(in, BlobStore.extensionOf(image.getOriginalFilename(), "jpg"));
+        }
+        return blobStore.localPath(key).toAbsolutePath().toString();
     }
 }
@@ -0,0 +1,340 @@
+package io.metaverse.fashion.studio.service;
+
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process port of shirt_recommender.py: dominant colours by k-means over a
+ * 224x224 raster, platform and material lookup tables, price normalisation and
+ * a description-length score, combined as a weighted sum.
+ */
+@Component
+public class ShirtScorer {
+
+    public record Weights(double platform, double price, double color, double material, double description) {
+        public static final Weights DEFAULT = new Weights(0.2, 0.3, 0.2, 0.2, 0.1);
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("platform", platform);
+            map.put("price", price);
+            map.put("color", color);
+            map.put("material", material);
+            map.put("description", description);
+            return map;
+        }
+    }
+
+    public record Features(String id, String imagePath, String platform, double platformScore,
+                           double price, double priceNorm, int[][] colors, String material,
+                           double materialScore, double descriptionScore, double[] avgColor) {
+    }
+
+    private static final int IMAGE_SIZE = 224;
+    private static final int CLUSTERS = 3;
+    private static final int ATTEMPTS = 10;
+    private static final int MAX_ITERATIONS = 100;
+    private static final double EPSILON = 0.85;
+    private static final double MAX_RGB_DISTANCE = Math.sqrt(3 * 255.0 * 255.0);
+
+    private static final Map<String, Double> PLATFORM_SCORES = Map.of(
+            "amazon", 0.9, "myntra", 0.95, "flipkart", 0.85,
+            "nykaa", 0.8, "ajio", 0.85, "meesho", 0.7, "snapdeal", 0.65
+    );
+
+    // Longest terms first so "organic cotton" wins over "cotton"
+    private static final String[] MATERIAL_TERMS = {"organic cotton", "polyester", "cotton", "linen", "blend", "silk"};
+    private static final Map<String, Double> MATERIAL_SCORES = Map.of(
+            "organic cotton", 1.0, "cotton", 0.9, "linen", 0.85,
+            "silk", 0.95, "polyester", 0.6, "blend", 0.7
+    );
+    private static final Pattern MATERIAL_PATTERN = Pattern.compile(
+            "\\b(" + String.join("|", MATERIAL_TERMS).replace(" ", "\\s+") + ")(?:e?s)?\\b");
+    // Roughly spaCy's tokenisation: words and individual punctuation marks
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("\\w+|[^\\w\\s]");
+
+    public Features extractFeatures(String id, String imageName, byte[] imageBytes,
+                                    String platform, double price, String description) throws IOException {
+        int[] rgb = readRaster(imageName, imageBytes);
+        String text = description == null ? "" : description.toLowerCase(Locale.ROOT);
+
+        List<String> materials = new ArrayList<>();
+        Matcher matcher = MATERIAL_PATTERN.matcher(text);
+        while (matcher.find()) {
+            materials.add(matcher.group(1).replaceAll("\\s+", " "));
+        }
+        double materialScore = materials.stream().mapToDouble(MATERIAL_SCORES::get).max().orElse(0.5);
+
+        int tokens = 0;
+        Matcher tokenMatcher = TOKEN_PATTERN.matcher(text);
+        while (tokenMatcher.find()) {
+            tokens++;
+        }
+
+        String platformName = platform == null ? "Unknown" : platform;
+        return new Features(
+                id,
+                imageName,
+                platformName,
+                PLATFORM_SCORES.getOrDefault(platformName.trim().toLowerCase(Locale.ROOT), 0.7),
+                price,
+                1 - Math.min(1, Math.max(0, (price - 500) / 4500)),
+                dominantColors(rgb),
+                materials.isEmpty() ? "unknown" : materials.get(0),
+                materialScore,
+                Math.min(1, tokens / 500.0),
+                averageColor(rgb)
+        );
+    }
+
+    /**
+     * Only the mean colour of the image, resized the same way as for
+     * {@link #extractFeatures}; skips the k-means that finds dominant colours.
+     */
+    public double[] averageColor(String imageName, byte[] imageBytes) throws IOException {
+        return averageColor(readRaster(imageName, imageBytes));
+    }
+
+    /**
+     * Same weighted sum as shirt_recommender.py, which never applied the colour weight.
+     */
+    public double score(Features features, Weights weights) {
+        return weights.platform() * features.platformScore()
+                + weights.price() * features.priceNorm()
+                + weights.material() * features.materialScore()
+                + weights.description() * features.descriptionScore();
+    }
+
+    /**
+     * Picks the best of the given shirts and returns the same JSON structure the
+     * Python script printed.
+     */
+    public Map<String, Object> recommend(List<Features> shirts, Weights weights) {
+        if (shirts.isEmpty()) {
+            throw new IllegalArgumentException("At least one shirt must be provided");
+        }
+        Features best = shirts.get(0);
+        double bestScore = score(best, weights);
+        for (Features shirt : shirts.subList(1, shirts.size())) {
+            double score = score(shirt, weights);
+            if (score > bestScore) {
+                best = shirt;
+                bestScore = score;
+            }
+        }
+
+        Map<String, Object> recommendation = toMap(best);
+        recommendation.put("score", bestScore);
+        recommendation.put("reason", "Chosen for its " + best.platform()
+                + " platform score, price normalization, material quality, and description length.");
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("status", "success");
+        response.put("recommendation", recommendation);
+        response.put("weights_used", weights.toMap());
+        return response;
+    }
+
+    /**
+     * Closeness of the shirt's nearest dominant colour to the preferred colour,
+     * 1 for an exact match down to 0 for the opposite corner of the RGB cube.
+     */
+    public double colorScore(Features features, int[] preferredColor) {
+        double best = 0;
+        for (int[] color : features.colors()) {
+            double dr = color[0] - preferredColor[0];
+            double dg = color[1] - preferredColor[1];
+            double db = color[2] - preferredColor[2];
+            best = Math.max(best, 1 - Math.sqrt(dr * dr + dg * dg + db * db) / MAX_RGB_DISTANCE);
+        }
+        return best;
+    }
+
+    /**
+     * Ranks every shirt by weighted score, best first, with the per-component
+     * scores that went into it. The colour component only counts when a
+     * preferred colour is given; without one the score matches {@link #score}.
+     */
+    public List<Map<String, Object>> rank(List<Features> shirts, Weights weights, int[] preferredColor) {
+        List<Map<String, Object>> ranked = new ArrayList<>(shirts.size());
+        for (Features shirt : shirts) {
+            Map<String, Object> components = new LinkedHashMap<>();
+            components.put("platform", shirt.platformScore());
+            components.put("price", shirt.priceNorm());
+            components.put("material", shirt.materialScore());
+            components.put("description", shirt.descriptionScore());
+            double score = score(shirt, weights);
+            if (preferredColor != null) {
+                double color = colorScore(shirt, preferredColor);
+                components.put("color", color);
+                score += weights.color() * color;
+            }
+
+            Map<String, Object> entry = toMap(shirt);
+            entry.put("score", score);
+            entry.put("components", components);
+            ranked.add(entry);
+        }
+
+        ranked.sort(Comparator.comparingDouble((Map<String, Object> entry) -> (double) entry.get("score")).reversed());
+        for (int i = 0; i < ranked.size(); i++) {
+            ranked.get(i).put("rank", i + 1);
+        }
+        return ranked;
+    }
+
+    public Map<String, Object> toMap(Features features) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", features.id());
+        map.put("image_path", features.imagePath());
+        map.put("platform", features.platform());
+        map.put("platform_score", features.platformScore());
+        map.put("price", features.price());
+        map.put("price_norm", features.priceNorm());
+        map.put("colors", features.colors());
+        map.put("material", features.material());
+        map.put("material_score", features.materialScore());
+        map.put("description_score", features.descriptionScore());
+        map.put("avg_color", features.avgColor());
+        return map;
+    }
+
+    /** Decodes and resizes the image to 224x224, returning packed 0xRRGGBB pixels. */
+    private static int[] readRaster(String imageName, byte[] imageBytes) throws IOException {
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(imageBytes));
+        if (source == null) {
+            throw new IOException("Could not read image " + imageName);
+        }
+        BufferedImage resized = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = resized.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(source, 0, 0, IMAGE_SIZE, IMAGE_SIZE, null);
+        g.dispose();
+        return resized.getRGB(0, 0, IMAGE_SIZE, IMAGE_SIZE, null, 0, IMAGE_SIZE);
+    }
+
+    private static double[] averageColor(int[] rgb) {
+        long r = 0, g = 0, b = 0;
+        for (int pixel : rgb) {
+            r += pixel >> 16 & 0xff;
+            g += pixel >> 8 & 0xff;
+            b += pixel & 0xff;
+        }
+        return new double[]{(double) r / rgb.length, (double) g / rgb.length, (double) b / rgb.length};
+    }
+
+    /**
+     * k-means with k=3 over the RGB pixels, best of several seeded attempts by
+     * compactness, stopping when no centre moves more than EPSILON. Seeds are
+     * fixed so the same image always yields the same colours.
+     */
+    static int[][] dominantColors(int[] rgb) {
+        int n = rgb.length;
+        float[] r = new float[n];
+        float[] g = new float[n];
+        float[] b = new float[n];
+        for (int i = 0; i < n; i++) {
+            r[i] = rgb[i] >> 16 & 0xff;
+            g[i] = rgb[i] >> 8 & 0xff;
+            b[i] = rgb[i] & 0xff;
+        }
+
+        Random random = new Random(0);
+        float[][] bestCenters = null;
+        double bestCompactness = Double.MAX_VALUE;
+        float[][] centers = new float[CLUSTERS][3];
+        double[][] sums = new double[CLUSTERS][3];
+        int[] counts = new int[CLUSTERS];
+
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            for (int c = 0; c < CLUSTERS; c++) {
+                int seed = random.nextInt(n);
+                centers[c][0] = r[seed];
+                centers[c][1] = g[seed];
+                centers[c][2] = b[seed];
+            }
+
+            double compactness = 0;
+            for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+                for (double[] sum : sums) {
+                    sum[0] = sum[1] = sum[2] = 0;
+                }
+                Arrays.fill(counts, 0);
+                compactness = 0;
+
+                for (int i = 0; i < n; i++) {
+                    int nearest = 0;
+                    float nearestDistance = Float.MAX_VALUE;
+                    for (int c = 0; c < CLUSTERS; c++) {
+                        float dr = r[i] - centers[c][0];
+                        float dg = g[i] - centers[c][1];
+                        float db = b[i] - centers[c][2];
+                        float distance = dr * dr + dg * dg + db * db;
+                        if (distance < nearestDistance) {
+                            nearestDistance = distance;
+                            nearest = c;
+                        }
+                    }
+                    sums[nearest][0] += r[i];
+                    sums[nearest][1] += g[i];
+                    sums[nearest][2] += b[i];
+                    counts[nearest]++;
+                    compactness += nearestDistance;
+                }
+
+                double maxShift = 0;
+                for (int c = 0; c < CLUSTERS; c++) {
+                    if (counts[c] == 0) {
+                        // Re-seed an empty cluster on a random pixel
+                        int seed = random.nextInt(n);
+                        centers[c][0] = r[seed];
+                        centers[c][1] = g[seed];
+                        centers[c][2] = b[seed];
+                        maxShift = Double.MAX_VALUE;
+                        continue;
+                    }
+                    for (int k = 0; k < 3; k++) {
+                        float updated = (float) (sums[c][k] / counts[c]);
+                        maxShift = Math.max(maxShift, Math.abs(updated - centers[c][k]));
+                        centers[c][k] = updated;
+                    }
+                }
+                if (maxShift <= EPSILON) {
+                    break;
+                }
+            }
+
+            if (compactness < bestCompactness) {
+                bestCompactness = compactness;
+                bestCenters = new float[CLUSTERS][];
+                for (int c = 0; c < CLUSTERS; c++) {
+                    bestCenters[c] = centers[c].clone();
+                }
+            }
+        }
+
+        int[][] colors = new int[CLUSTERS][3];
+        for (int c = 0; c < CLUSTERS; c++) {
+            for (int k = 0; k < 3; k++) {
+                colors[c][k] = (int) bestCenters[c][k];
+            }
+        }
+        return colors;
+    }
+}
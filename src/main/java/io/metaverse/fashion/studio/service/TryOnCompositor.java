@@ -0,0 +1,307 @@
+package io.metaverse.fashion.studio.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * In-process port of virtual_tryon.py's {@code process_cloth_image} and
+ * {@code overlay_cloth}: garment mask extraction, crop to the largest blob,
+ * scaling into the torso rectangle and alpha blending onto the photo.
+ *
+ * Everything works on packed {@code int[]} ARGB rasters and {@code byte[]}
+ * masks. The per-pixel passes (thresholding, morphology, resizing, blending)
+ * are split into row bands that run on all cores.
+ */
+@Component
+public class TryOnCompositor {
+
+    // Same placement tweaks as virtual_tryon.py
+    private static final double LEFT_SHIFT_RATIO = 0.18;
+    private static final int RIGHT_SHIFT_AMOUNT = 40;
+    private static final int UPWARD_SHIFT = 15;
+    private static final double CLOTH_SCALE_FACTOR = 1.2;
+
+    private static final int WHITE_THRESHOLD = 240;
+    // cv2.morphologyEx(MORPH_CLOSE, 5x5 kernel, iterations=2) == 9x9 dilate then 9x9 erode
+    private static final int CLOSE_RADIUS = 4;
+    private static final int MIN_ROWS_PER_BAND = 32;
+
+    @FunctionalInterface
+    private interface RowBand {
+        void run(int fromRow, int toRow);
+    }
+
+    private final int parallelism = Runtime.getRuntime().availableProcessors();
+    private final ExecutorService bandExecutor = Executors.newFixedThreadPool(parallelism);
+
+    /**
+     * @return a new RGB image: the person photo with the garment blended into the region,
+     *         or null if the garment image has no foreground
+     */
+    public BufferedImage composite(BufferedImage person, BufferedImage cloth, BodyRegionDetector.Region region) {
+        int width = person.getWidth();
+        int height = person.getHeight();
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+        person.getRGB(0, 0, width, height, pixels, 0, width);
+
+        // The detector may report rectangles reaching past the frame
+        int x1 = clamp(region.x1(), 0, width);
+        int y1 = clamp(region.y1(), 0, height);
+        int targetWidth = clamp(region.x2(), 0, width) - x1;
+        int targetHeight = clamp(region.y2(), 0, height) - y1;
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return result;
+        }
+
+        int clothWidth = cloth.getWidth();
+        int clothHeight = cloth.getHeight();
+        int[] clothPixels = cloth.getRGB(0, 0, clothWidth, clothHeight, null, 0, clothWidth);
+        byte[] mask = garmentMask(cloth, clothPixels);
+
+        int[] box = largestComponent(mask, clothWidth, clothHeight);
+        if (box == null) {
+            return null;
+        }
+        int boxWidth = box[2] - box[0];
+        int boxHeight = box[3] - box[1];
+
+        double scale = Math.min(targetWidth * 0.95 / boxWidth, targetHeight * 0.95 / boxHeight) * CLOTH_SCALE_FACTOR;
+        int scaledWidth = Math.max(1, (int) (boxWidth * scale));
+        int scaledHeight = Math.max(1, (int) (boxHeight * scale));
+        int offsetX = Math.max(0, (targetWidth - scaledWidth) / 2 - (int) (targetWidth * LEFT_SHIFT_RATIO) + RIGHT_SHIFT_AMOUNT);
+        int offsetY = Math.max(0, (targetHeight - scaledHeight) / 2 - UPWARD_SHIFT);
+
+        // Only the part of the scaled garment that lands inside the region is ever computed
+        int visibleWidth = Math.min(scaledWidth, targetWidth - offsetX);
+        int visibleHeight = Math.min(scaledHeight, targetHeight - offsetY);
+        if (visibleWidth <= 0 || visibleHeight <= 0) {
+            return result;
+        }
+
+        double scaleX = (double) boxWidth / scaledWidth;
+        double scaleY = (double) boxHeight / scaledHeight;
+        int destX = x1 + offsetX;
+        int destY = y1 + offsetY;
+        parallelRows(visibleHeight, (from, to) -> {
+            for (int dy = from; dy < to; dy++) {
+                // Bilinear sampling with pixel-centre alignment, as cv2.INTER_LINEAR
+                double sy = Math.max(0, Math.min(boxHeight - 1, (dy + 0.5) * scaleY - 0.5));
+                int y0 = (int) sy;
+                int y1n = Math.min(y0 + 1, boxHeight - 1);
+                double fy = sy - y0;
+                int row0 = (box[1] + y0) * clothWidth + box[0];
+                int row1 = (box[1] + y1n) * clothWidth + box[0];
+                int out = (destY + dy) * width + destX;
+
+                for (int dx = 0; dx < visibleWidth; dx++) {
+                    double sx = Math.max(0, Math.min(boxWidth - 1, (dx + 0.5) * scaleX - 0.5));
+                    int x0 = (int) sx;
+                    int x1n = Math.min(x0 + 1, boxWidth - 1);
+                    double fx = sx - x0;
+                    double w00 = (1 - fx) * (1 - fy);
+                    double w01 = fx * (1 - fy);
+                    double w10 = (1 - fx) * fy;
+                    double w11 = fx * fy;
+
+                    int alpha = (int) Math.round((mask[row0 + x0] & 0xff) * w00 + (mask[row0 + x1n] & 0xff) * w01
+                            + (mask[row1 + x0] & 0xff) * w10 + (mask[row1 + x1n] & 0xff) * w11);
+                    if (alpha == 0) {
+                        continue;
+                    }
+                    int c00 = clothPixels[row0 + x0];
+                    int c01 = clothPixels[row0 + x1n];
+                    int c10 = clothPixels[row1 + x0];
+                    int c11 = clothPixels[row1 + x1n];
+                    int background = pixels[out + dx];
+                    int blended = 0;
+                    for (int shift = 0; shift <= 16; shift += 8) {
+                        int c = (int) Math.round(((c00 >> shift) & 0xff) * w00 + ((c01 >> shift) & 0xff) * w01
+                                + ((c10 >> shift) & 0xff) * w10 + ((c11 >> shift) & 0xff) * w11);
+                        int b = (background >> shift) & 0xff;
+                        blended |= ((b * (255 - alpha) + c * alpha) / 255) << shift;
+                    }
+                    pixels[out + dx] = blended;
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Masks and crops a raw garment image: the result is the garment's bounding
+     * box with the mask in the alpha channel, or null if there is no garment.
+     */
+    public BufferedImage cutOut(BufferedImage cloth) {
+        int clothWidth = cloth.getWidth();
+        int clothHeight = cloth.getHeight();
+        int[] clothPixels = cloth.getRGB(0, 0, clothWidth, clothHeight, null, 0, clothWidth);
+        byte[] mask = garmentMask(cloth, clothPixels);
+        int[] box = largestComponent(mask, clothWidth, clothHeight);
+        if (box == null) {
+            return null;
+        }
+
+        int boxWidth = box[2] - box[0];
+        int boxHeight = box[3] - box[1];
+        BufferedImage result = new BufferedImage(boxWidth, boxHeight, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+        parallelRows(boxHeight, (from, to) -> {
+            for (int y = from; y < to; y++) {
+                int src = (box[1] + y) * clothWidth + box[0];
+                int dst = y * boxWidth;
+                for (int x = 0; x < boxWidth; x++) {
+                    pixels[dst + x] = (mask[src + x] & 0xff) << 24 | clothPixels[src + x] & 0xffffff;
+                }
+            }
+        });
+        return result;
+    }
+
+    private byte[] garmentMask(BufferedImage cloth, int[] clothPixels) {
+        return cloth.getColorModel().hasAlpha()
+                ? alphaMask(clothPixels)
+                : close(thresholdMask(clothPixels), cloth.getWidth(), cloth.getHeight());
+    }
+
+    private byte[] alphaMask(int[] argb) {
+        byte[] mask = new byte[argb.length];
+        for (int i = 0; i < argb.length; i++) {
+            mask[i] = (byte) (argb[i] >>> 24);
+        }
+        return mask;
+    }
+
+    /** Near-white background becomes 0, everything else 255 (cv2 THRESH_BINARY_INV at 240). */
+    private byte[] thresholdMask(int[] argb) {
+        byte[] mask = new byte[argb.length];
+        // Plain per-pixel pass, so the "rows" handed to the bands are single pixels
+        parallelRows(argb.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int p = argb[i];
+                // cv2.COLOR_BGR2GRAY fixed-point weights
+                int gray = (((p >> 16) & 0xff) * 4899 + ((p >> 8) & 0xff) * 9617 + (p & 0xff) * 1868 + 8192) >> 14;
+                mask[i] = gray > WHITE_THRESHOLD ? 0 : (byte) 255;
+            }
+        });
+        return mask;
+    }
+
+    /** Morphological closing with a square kernel: fills small holes and gaps in the mask. */
+    private byte[] close(byte[] mask, int width, int height) {
+        byte[] scratch = new byte[mask.length];
+        morph(mask, scratch, width, height, true, true);
+        morph(scratch, mask, width, height, true, false);
+        morph(mask, scratch, width, height, false, true);
+        morph(scratch, mask, width, height, false, false);
+        return mask;
+    }
+
+    // One separable pass of a (2r+1)-wide max (dilate) or min (erode) filter; out-of-frame pixels are ignored
+    private void morph(byte[] src, byte[] dst, int width, int height, boolean dilate, boolean horizontal) {
+        parallelRows(height, (from, to) -> {
+            for (int y = from; y < to; y++) {
+                for (int x = 0; x < width; x++) {
+                    int lo = horizontal ? Math.max(0, x - CLOSE_RADIUS) : Math.max(0, y - CLOSE_RADIUS);
+                    int hi = horizontal ? Math.min(width - 1, x + CLOSE_RADIUS) : Math.min(height - 1, y + CLOSE_RADIUS);
+                    int value = dilate ? 0 : 255;
+                    for (int k = lo; k <= hi; k++) {
+                        int v = src[horizontal ? y * width + k : k * width + x] & 0xff;
+                        value = dilate ? Math.max(value, v) : Math.min(value, v);
+                    }
+                    dst[y * width + x] = (byte) value;
+                }
+            }
+        });
+    }
+
+    /**
+     * Bounding box {x1, y1, x2, y2} (exclusive) of the largest 8-connected
+     * foreground component, standing in for the largest external contour.
+     */
+    static int[] largestComponent(byte[] mask, int width, int height) {
+        int[] labels = new int[mask.length];
+        int[] stack = new int[mask.length];
+        int[] best = null;
+        int bestArea = 0;
+        int label = 0;
+        for (int start = 0; start < mask.length; start++) {
+            if (mask[start] == 0 || labels[start] != 0) {
+                continue;
+            }
+            label++;
+            int area = 0;
+            int minX = width, minY = height, maxX = -1, maxY = -1;
+            int top = 0;
+            stack[top++] = start;
+            labels[start] = label;
+            while (top > 0) {
+                int p = stack[--top];
+                int x = p % width;
+                int y = p / width;
+                area++;
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+                    for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+                        int n = ny * width + nx;
+                        if (mask[n] != 0 && labels[n] == 0) {
+                            labels[n] = label;
+                            stack[top++] = n;
+                        }
+                    }
+                }
+            }
+            if (area > bestArea) {
+                bestArea = area;
+                best = new int[]{minX, minY, maxX + 1, maxY + 1};
+            }
+        }
+        return best;
+    }
+
+    private void parallelRows(int rows, RowBand band) {
+        int bands = Math.min(parallelism, Math.max(1, rows / MIN_ROWS_PER_BAND));
+        if (bands == 1) {
+            band.run(0, rows);
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<>(bands);
+        for (int i = 0; i < bands; i++) {
+            int from = (int) ((long) rows * i / bands);
+            int to = (int) ((long) rows * (i + 1) / bands);
+            futures.add(bandExecutor.submit(() -> band.run(from, to)));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Compositing failed", e.getCause());
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while compositing", e);
+        }
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    @PreDestroy
+    public void stop() {
+        bandExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,124 @@
+package io.metaverse.fashion.studio.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Try-on composites keyed by the content hashes of the user photo and the
+ * garment, so flipping back to a combination already rendered is answered
+ * without running the compositor again. The photos themselves are never
+ * stored.
+ *
+ * The composites live in the {@link CacheBlobStore} and are indexed by a
+ * {@link CacheIndex} bounded by their total size; evicted composites are
+ * deleted. Concurrent requests for the same pair share one render.
+ */
+@Component
+public class TryOnResultCache implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(TryOnResultCache.class);
+
+    @FunctionalInterface
+    public interface Renderer {
+        /** @return the blob key of the composite, or null if none could be produced */
+        String render() throws IOException, InterruptedException;
+    }
+
+    @Value("${tryon.cache.enabled:true}")
+    private boolean enabled;
+
+    private final CacheBlobStore blobStore;
+    private final CacheIndex index;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public TryOnResultCache(CacheBlobStore blobStore, MeterRegistry registry,
+                            @Value("${tryon.cache.index-file:data/tryon-cache-index.txt}") String indexFile,
+                            @Value("${tryon.cache.max-bytes:268435456}") long maxBytes) {
+        this.blobStore = blobStore;
+        this.hits = Counter.builder("tryon.cache.requests").tag("result", "hit")
+                .description("Try-on requests answered from the result cache").register(registry);
+        this.misses = Counter.builder("tryon.cache.requests").tag("result", "miss")
+                .description("Try-on requests that had to be rendered").register(registry);
+        Counter evictions = Counter.builder("tryon.cache.evictions")
+                .description("Composites deleted to stay within the size budget").register(registry);
+        this.index = new CacheIndex("Try-on result cache", indexFile, maxBytes, blobStore::exists,
+                (key, blobKey, lastReference) -> {
+                    evictions.increment();
+                    if (lastReference) {
+                        try {
+                            blobStore.delete(blobKey);
+                        } catch (IOException e) {
+                            log.warn("Could not evict {}: {}", key, e.getMessage());
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tryon.cache.entries", this, TryOnResultCache::size).register(registry);
+        Gauge.builder("tryon.cache.bytes", this, TryOnResultCache::bytes).baseUnit("bytes").register(registry);
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        index.load();
+    }
+
+    public static String key(String userImageSha256, String clothImageSha256) {
+        return userImageSha256 + "+" + clothImageSha256;
+    }
+
+    /**
+     * @return the blob key of the composite for this pair, rendering it if it
+     *         is not cached yet
+     */
+    public String getOrRender(String key, Renderer renderer) throws IOException, InterruptedException {
+        if (!enabled) {
+            misses.increment();
+            return renderer.render();
+        }
+
+        String cached = index.get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        AtomicBoolean rendered = new AtomicBoolean();
+        String blobKey = index.coalesce(key, () -> {
+            rendered.set(true);
+            misses.increment();
+            String result = renderer.render();
+            if (result != null) {
+                index.put(key, result, blobStore.size(result));
+            }
+            return result;
+        });
+        if (!rendered.get()) {
+            // Same pair was already rendering; its result counts as a hit for this request
+            hits.increment();
+        }
+        return blobKey;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public long bytes() {
+        return index.weight();
+    }
+}
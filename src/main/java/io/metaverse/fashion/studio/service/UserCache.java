@@ -0,0 +1,104 @@
+package io.metaverse.fashion.studio.service;
+
+import io.metaverse.fashion.studio.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU of user lookups by username and by email. Misses are cached too
+ * (as empty entries) so unknown usernames at login don't reach the database
+ * every time. Negative entries expire sooner than positive ones, since another
+ * node may create the user in the meantime.
+ */
+@Component
+public class UserCache {
+
+    private record Entry(Optional<User> user, long expiresAt) {
+    }
+
+    private final Map<String, Entry> byUsername;
+    private final Map<String, Entry> byEmail;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+
+    public UserCache(@Value("${auth.user-cache.max-entries:10000}") int maxEntries,
+                     @Value("${auth.user-cache.ttl-seconds:600}") long ttlSeconds,
+                     @Value("${auth.user-cache.negative-ttl-seconds:30}") long negativeTtlSeconds) {
+        this.byUsername = lru(maxEntries);
+        this.byEmail = lru(maxEntries);
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.negativeTtlMillis = TimeUnit.SECONDS.toMillis(negativeTtlSeconds);
+    }
+
+    private static Map<String, Entry> lru(int maxEntries) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached lookup for the username, or runs {@code loader} and
+     * caches what it finds (including nothing).
+     */
+    public Optional<User> findByUsername(String username, Function<String, Optional<User>> loader) {
+        return find(byUsername, username, loader);
+    }
+
+    public Optional<User> findByEmail(String email, Function<String, Optional<User>> loader) {
+        return find(byEmail, email, loader);
+    }
+
+    /** True if the username or email is cached as belonging to an existing user. */
+    public synchronized boolean isKnown(String username, String email) {
+        return exists(byUsername.get(username)) || exists(byEmail.get(email));
+    }
+
+    private static boolean exists(Entry entry) {
+        return entry != null && entry.user().isPresent() && entry.expiresAt() >= System.currentTimeMillis();
+    }
+
+    /** Caches a user just saved, replacing any negative entries for its username and email. */
+    public synchronized void put(User user) {
+        Entry entry = entry(Optional.of(user));
+        byUsername.put(user.getUsername(), entry);
+        byEmail.put(user.getEmail(), entry);
+    }
+
+    public synchronized void evict(String username, String email) {
+        byUsername.remove(username);
+        byEmail.remove(email);
+    }
+
+    private Entry entry(Optional<User> user) {
+        long ttl = user.isPresent() ? ttlMillis : negativeTtlMillis;
+        return new Entry(user, System.currentTimeMillis() + ttl);
+    }
+
+    private Optional<User> find(Map<String, Entry> map, String key, Function<String, Optional<User>> loader) {
+        synchronized (this) {
+            Entry entry = map.get(key);
+            if (entry != null && entry.expiresAt() >= System.currentTimeMillis()) {
+                return entry.user();
+            }
+        }
+        // Loaded outside the lock; concurrent misses for one key may both query
+        Optional<User> user = loader.apply(key);
+        synchronized (this) {
+            Entry current = map.get(key);
+            // A signup that landed while we queried wins over our miss
+            if (user.isPresent() || current == null || current.user().isEmpty()) {
+                map.put(key, entry(user));
+            }
+        }
+        return user;
+    }
+}
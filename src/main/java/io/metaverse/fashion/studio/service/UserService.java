@@ -5,6 +5,7 @@ import io.metaverse.fashion.studio.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
@@ -20,42 +21,60 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserCache userCache;
+
     public User saveUser(User user) {
         user.setPassword(sha256Hash(user.getPassword()));
-        log.info("Hashed password: " + user.getPassword());
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userCache.put(saved);
+        return saved;
     }
 
     public Optional<User> findUserByEmail(String email) {
-        return userRepository.findByEmail(email);
+        return userCache.findByEmail(email, userRepository::findByEmail);
     }
 
     public Optional<User> findUserByUsername(String username) {
-        return userRepository.findByUsername(username);
+        return userCache.findByUsername(username, userRepository::findByUsername);
     }
 
-    public boolean loginUser(String username, String password) {
-        Optional<User> userOptional = userRepository.findByUsername(username);
-        if (userOptional.isPresent()) {
-            User user = userOptional.get();
-            String hashedInput = sha256Hash(password);
-            return hashedInput.equals(user.getPassword());
-        }
-        return false;
+    /**
+     * @return the user if the password matches
+     */
+    public Optional<User> loginUser(String username, String password) {
+        String hashedInput = sha256Hash(password);
+        return findUserByUsername(username)
+                .filter(user -> MessageDigest.isEqual(
+                        hashedInput.getBytes(StandardCharsets.US_ASCII),
+                        user.getPassword().getBytes(StandardCharsets.US_ASCII)));
     }
 
+    /**
+     * Inserts straight away and lets the unique constraints on username and
+     * email reject duplicates, so a signup costs one statement. Users already
+     * cached are turned away without reaching the database.
+     */
     public User signupUser(String username, String email, String password) {
-        if (userRepository.findByUsername(username).isPresent() || userRepository.findByEmail(email).isPresent()) {
+        if (userCache.isKnown(username, email)) {
             throw new IllegalArgumentException("Username or Email already exists");
         }
         User user = new User();
         user.setUsername(username);
         user.setEmail(email);
-        user.setPassword(password);
-        return userRepository.save(user);
+        user.setPassword(sha256Hash(password));
+        try {
+            User saved = userRepository.save(user);
+            userCache.put(saved);
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            // Whatever was cached as missing evidently exists now
+            userCache.evict(username, email);
+            throw new IllegalArgumentException("Username or Email already exists");
+        }
     }
 
-    private String sha256Hash(String password) {
+    static String sha256Hash(String password) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
             byte[] hashedBytes = digest.digest(password.getBytes(StandardCharsets.UTF_8));
@@ -7,10 +7,20 @@ import org.springframework.web.multipart.MultipartFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -21,13 +31,103 @@ public class VirtualTryOnService {
     @Value("${python.vtonscript.path}")
     private String pythonScriptPath;
 
+    @Value("${python.executable:python}")
+    private String pythonExecutable;
+
     @Value("${ai.vtonoutput.dir}")
     private String outputDir;
 
+    @Value("${tryon.engine:jvm}")
+    private String engine;
+
+    private final CacheBlobStore blobStore;
+    private final TryOnResultCache resultCache;
+    private final TryOnCompositor compositor;
+    private final BodyRegionDetector bodyRegionDetector;
+    private final PythonProcessMetrics metrics;
+
+    /** An uploaded photo in the private work directory and the SHA-256 of its content. */
+    private record Upload(Path path, String sha256) {
+    }
+
+    public VirtualTryOnService(CacheBlobStore blobStore, TryOnResultCache resultCache, TryOnCompositor compositor,
+                               BodyRegionDetector bodyRegionDetector, PythonProcessMetrics metrics) {
+        this.blobStore = blobStore;
+        this.resultCache = resultCache;
+        this.compositor = compositor;
+        this.bodyRegionDetector = bodyRegionDetector;
+        this.metrics = metrics;
+    }
+
     public String processImages(MultipartFile userImage, MultipartFile clothImage) throws IOException, InterruptedException {
         logger.info("Starting processImages method");
 
-        String imageUrl = null;
+        // Uploads stay out of the blob stores and are deleted once rendered; only their
+        // content hashes are kept, as the result cache key. Composites are evictable,
+        // so they go to the cache store and are served from <base-url>cache/
+        Upload user = saveFile(userImage, "user");
+        try {
+            Upload cloth = saveFile(clothImage, "cloth");
+            try {
+                String resultKey = resultCache.getOrRender(TryOnResultCache.key(user.sha256(), cloth.sha256()),
+                        () -> "jvm".equalsIgnoreCase(engine)
+                                ? composite(user.path(), cloth.path())
+                                : render(user.path(), cloth.path()));
+                return resultKey != null ? blobStore.url(resultKey) : null;
+            } finally {
+                deleteUpload(cloth);
+            }
+        } finally {
+            deleteUpload(user);
+        }
+    }
+
+    /**
+     * Detects the torso and blends the garment in-process; the only encode is
+     * the final JPEG written to the cache blob store.
+     */
+    private String composite(Path userImage, Path clothImage) throws IOException {
+        long started = System.nanoTime();
+        BufferedImage person = readImage(userImage);
+        BufferedImage cloth = readImage(clothImage);
+
+        long detecting = System.nanoTime();
+        Optional<BodyRegionDetector.Region> region = bodyRegionDetector.detect(person);
+        metrics.recordStage("virtual-tryon", "detect", detecting);
+        if (region.isEmpty()) {
+            logger.error("Failed to detect upper body in {}", userImage.getFileName());
+            return null;
+        }
+        long compositing = System.nanoTime();
+        BufferedImage result = compositor.composite(person, cloth, region.get());
+        metrics.recordStage("virtual-tryon", "composite", compositing);
+        if (result == null) {
+            logger.error("No garment found in {}", clothImage.getFileName());
+            return null;
+        }
+
+        long storing = System.nanoTime();
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(result, "jpg", jpeg);
+        String resultKey = blobStore.put(new ByteArrayInputStream(jpeg.toByteArray()), "jpg");
+        metrics.recordStage("virtual-tryon", "store", storing);
+        logger.info("Composited try-on {} in {} ms", resultKey, (System.nanoTime() - started) / 1_000_000);
+        return resultKey;
+    }
+
+    private BufferedImage readImage(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            BufferedImage image = ImageIO.read(in);
+            if (image == null) {
+                throw new IOException("Could not read image " + file.getFileName());
+            }
+            return image;
+        }
+    }
+
+    /** Runs virtual_tryon.py, used when {@code tryon.engine=python}. */
+    private String render(Path userImage, Path clothImage) throws IOException, InterruptedException {
+        String resultKey = null;
 
         // Create output directory if it doesn't exist
         Path outputPath = getOutputPath();
@@ -35,16 +135,15 @@ public class VirtualTryOnService {
             Files.createDirectories(outputPath);
         }
 
-        // Save uploaded files temporarily
-        String userImagePath = saveFile(userImage, "user");
-        String clothImagePath = saveFile(clothImage, "cloth");
+        String userImagePath = userImage.toAbsolutePath().toString();
+        String clothImagePath = clothImage.toAbsolutePath().toString();
 
         logger.info("User image saved at: {}", userImagePath);
         logger.info("Cloth image saved at: {}", clothImagePath);
 
         // Run the Python script
         ProcessBuilder pb = new ProcessBuilder(
-                "python",
+                pythonExecutable,
                 pythonScriptPath,
                 userImagePath,
                 clothImagePath,
@@ -52,13 +151,15 @@ public class VirtualTryOnService {
         );
 
         pb.redirectErrorStream(true);
-        Process process = pb.start();
+        PythonProcessMetrics.TrackedProcess tracked = metrics.start("virtual-tryon", pb);
+        Process process = tracked.process();
 
         // Capture Python script output
         StringBuilder output = new StringBuilder();
         try (var reader = new java.io.BufferedReader(new java.io.InputStreamReader(process.getInputStream()))) {
             String line;
             while ((line = reader.readLine()) != null) {
+                tracked.outputSeen();
                 output.append(line).append("\n");
                 logger.info("Python script output: {}", line);
 
@@ -69,8 +170,11 @@ public class VirtualTryOnService {
                     throw new RuntimeException("Python script error: " + line);
                 }
 
-                if (line.startsWith("http")) {
-                    imageUrl = line.trim();
+                if (line.startsWith("FILE:")) {
+                    String resultPath = line.substring("FILE:".length()).trim();
+                    long storing = System.nanoTime();
+                    resultKey = blobStore.putFile(Paths.get(resultPath), "jpg");
+                    metrics.recordStage("virtual-tryon", "store", storing);
                 }
             }
         }
@@ -86,15 +190,7 @@ public class VirtualTryOnService {
 //            throw new RuntimeException("Invalid output from Python script: " + result);
 //        }
 
-        // Clean up temporary files
-        try {
-            Files.deleteIfExists(Paths.get(userImagePath));
-            Files.deleteIfExists(Paths.get(clothImagePath));
-        } catch (IOException e) {
-            logger.warn("Failed to delete temporary files: {}", e.getMessage());
-        }
-
-        return imageUrl;
+        return resultKey;
     }
 
     private Path getOutputPath() {
@@ -106,14 +202,33 @@ public class VirtualTryOnService {
         return path;
     }
 
-    private String saveFile(MultipartFile file, String prefix) throws IOException {
+    private Upload saveFile(MultipartFile file, String prefix) throws IOException {
         Path outputPath = getOutputPath();
         Files.createDirectories(outputPath);
+        Path path = outputPath.resolve(prefix + "_" + UUID.randomUUID() + "."
+                + BlobStore.extensionOf(file.getOriginalFilename(), "jpg"));
 
-        String fileName = prefix + "_" + UUID.randomUUID() + "_" + file.getOriginalFilename();
-        Path filePath = outputPath.resolve(fileName);
-        file.transferTo(filePath);
-        logger.info("File saved: {}", filePath);
-        return filePath.toAbsolutePath().toString();
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            Files.copy(in, path);
+        } catch (IOException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        logger.info("File saved: {}", path);
+        return new Upload(path, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    private void deleteUpload(Upload upload) {
+        try {
+            Files.deleteIfExists(upload.path());
+        } catch (IOException e) {
+            logger.warn("Failed to delete temporary file {}: {}", upload.path(), e.getMessage());
+        }
     }
 }
\ No newline at end of file
@@ -1,27 +1,90 @@
 import cv2
 import numpy as np
 import argparse
-import base64
+import json
+import struct
 import sys
 import time
-import json
+
+# Binary frame protocol shared with CamFrameReader.java:
+# big-endian header (type: u8, timestamp: epoch micros i64, length: u32) + payload
+FRAME_TYPE_JPEG = 1
+FRAME_TYPE_ERROR = 2
+FRAME_TYPE_STATUS = 3
+FRAME_HEADER = struct.Struct('>BqI')
+
+frame_out = sys.stdout.buffer
+# Anything printed by libraries goes to stderr so it cannot corrupt the frame stream
+sys.stdout = sys.stderr
+
+def send_frame(frame_type, payload):
+    frame_out.write(FRAME_HEADER.pack(frame_type, int(time.time() * 1_000_000), len(payload)))
+    frame_out.write(payload)
+    frame_out.flush()
+
+def send_message(frame_type, message):
+    send_frame(frame_type, message.encode('utf-8'))
 
 # Set up argument parsing
 parser = argparse.ArgumentParser(description='Virtual Try-On Application')
-parser.add_argument('--cloth-image', type=str, required=True,
+cloth_source = parser.add_mutually_exclusive_group(required=True)
+cloth_source.add_argument('--cloth-image', type=str,
                    help='Path to the cloth image for virtual try-on')
+cloth_source.add_argument('--cloth-asset', type=str,
+                   help='Path to a preprocessed cloth asset manifest (cropped RGBA pyramid)')
 args = parser.parse_args()
 
 # Initialize webcam
 cap = cv2.VideoCapture(0)
 if not cap.isOpened():
-    print(json.dumps({"type": "error", "message": "Could not open webcam"}))
+    send_message(FRAME_TYPE_ERROR, "Could not open webcam")
     sys.exit(1)
 
+def split_rgba(image):
+    return image[:, :, :3], image[:, :, 3]
+
+def prepare_cloth(cloth_img):
+    """Mask and crop a raw garment image once; returns (rgb, mask) or None."""
+    if cloth_img.shape[2] == 4:
+        cloth_rgb, mask = split_rgba(cloth_img)
+    else:
+        cloth_rgb = cloth_img.copy()
+        gray = cv2.cvtColor(cloth_rgb, cv2.COLOR_BGR2GRAY)
+        _, mask = cv2.threshold(gray, 240, 255, cv2.THRESH_BINARY_INV)
+        kernel = np.ones((5,5), np.uint8)
+        mask = cv2.morphologyEx(mask, cv2.MORPH_CLOSE, kernel, iterations=2)
+
+    contours, _ = cv2.findContours(mask, cv2.RETR_EXTERNAL, cv2.CHAIN_APPROX_SIMPLE)
+    if not contours:
+        return None
+
+    largest_contour = max(contours, key=cv2.contourArea)
+    x, y, w, h = cv2.boundingRect(largest_contour)
+    return cloth_rgb[y:y+h, x:x+w], mask[y:y+h, x:x+w]
+
+def load_cloth_levels():
+    """Garment as (rgb, mask) levels, largest first. Assets come prescaled from Java."""
+    if args.cloth_asset:
+        with open(args.cloth_asset) as manifest_file:
+            manifest = json.load(manifest_file)
+        levels = []
+        for level in manifest["levels"]:
+            image = cv2.imread(level["path"], cv2.IMREAD_UNCHANGED)
+            if image is None or image.shape[2] != 4:
+                return None
+            levels.append(split_rgba(image))
+        return sorted(levels, key=lambda level: level[0].shape[1], reverse=True) or None
+
+    cloth_img = cv2.imread(args.cloth_image, cv2.IMREAD_UNCHANGED)
+    if cloth_img is None:
+        return None
+    prepared = prepare_cloth(cloth_img)
+    return [prepared] if prepared is not None else None
+
 # Load cloth image
-cloth_img = cv2.imread(args.cloth_image, cv2.IMREAD_UNCHANGED)
-if cloth_img is None:
-    print(json.dumps({"type": "error", "message": "Could not read cloth image"}))
+cloth_levels = load_cloth_levels()
+if cloth_levels is None:
+    send_message(FRAME_TYPE_ERROR, "Could not read cloth image")
     sys.exit(1)
 
 # Load OpenCV's face and upper body detectors
@@ -81,67 +144,42 @@ def detect_upper_body(frame):
 
     return upper_body_rect
 
-def process_cloth_image(cloth_img, target_width, target_height):
-    if cloth_img.shape[2] == 4:
-        cloth_rgb = cloth_img[:, :, :3]
-        mask = cloth_img[:, :, 3]
-    else:
-        cloth_rgb = cloth_img.copy()
-        gray = cv2.cvtColor(cloth_rgb, cv2.COLOR_BGR2GRAY)
-        _, mask = cv2.threshold(gray, 240, 255, cv2.THRESH_BINARY_INV)
-        kernel = np.ones((5,5), np.uint8)
-        mask = cv2.morphologyEx(mask, cv2.MORPH_CLOSE, kernel, iterations=2)
-
-    contours, _ = cv2.findContours(mask, cv2.RETR_EXTERNAL, cv2.CHAIN_APPROX_SIMPLE)
-    if not contours:
-        return None
-
-    largest_contour = max(contours, key=cv2.contourArea)
-    x, y, w, h = cv2.boundingRect(largest_contour)
-    cloth_cropped = cloth_rgb[y:y+h, x:x+w]
-    mask_cropped = mask[y:y+h, x:x+w]
-
-    scale_width = target_width / w
-    scale_height = target_height / h
-    effective_scale = max(scale_width, scale_height) * 1.1
+def overlay_cloth(frame, upper_body_rect, cloth_levels):
+    """Scale the garment to cover the body box and blend it into the frame in place."""
+    x1, y1, x2, y2 = upper_body_rect
+    roi = frame[y1:y2, x1:x2]
+    roi_h, roi_w = roi.shape[:2]
+    if roi_w == 0 or roi_h == 0:
+        return
 
+    base_rgb, _ = cloth_levels[0]
+    h, w = base_rgb.shape[:2]
+    effective_scale = max((x2 - x1) / w, (y2 - y1) / h) * 1.1
     new_w = int(w * effective_scale)
     new_h = int(h * effective_scale)
 
-    cloth_resized = cv2.resize(cloth_cropped, (new_w, new_h))
-    mask_resized = cv2.resize(mask_cropped, (new_w, new_h))
-
-    cloth_final = np.zeros((target_height, target_width, 3), dtype=np.uint8)
-    mask_final = np.zeros((target_height, target_width), dtype=np.uint8)
-
-    x_offset = max(0, (target_width - new_w) // 2)
-    y_offset = 0
-
-    y_end = min(y_offset + new_h, target_height)
-    x_end = min(x_offset + new_w, target_width)
-
-    cloth_final[y_offset:y_end, x_offset:x_end] = cloth_resized[:y_end-y_offset, :x_end-x_offset]
-    mask_final[y_offset:y_end, x_offset:x_end] = mask_resized[:y_end-y_offset, :x_end-x_offset]
+    # Resize from the smallest prescaled level that is still at least as large
+    cloth_src, mask_src = cloth_levels[0]
+    for level_rgb, level_mask in cloth_levels:
+        if level_rgb.shape[1] >= new_w and level_rgb.shape[0] >= new_h:
+            cloth_src, mask_src = level_rgb, level_mask
 
-    return cloth_final, mask_final
+    # One warp renders just the part of the scaled garment that lands on the ROI
+    # (anchored top-left); pixels past the garment edge get a zero mask
+    scale_x = new_w / cloth_src.shape[1]
+    scale_y = new_h / cloth_src.shape[0]
+    transform = np.float32([[scale_x, 0, (scale_x - 1) / 2], [0, scale_y, (scale_y - 1) / 2]])
+    cloth = cv2.warpAffine(cloth_src, transform, (roi_w, roi_h), flags=cv2.INTER_LINEAR)
+    mask = cv2.warpAffine(mask_src, transform, (roi_w, roi_h), flags=cv2.INTER_LINEAR)
 
-def overlay_cloth(frame, upper_body_rect, cloth_img, cloth_mask):
-    x1, y1, x2, y2 = upper_body_rect
-    roi = frame[y1:y2, x1:x2]
-
-    cloth_resized = cv2.resize(cloth_img, (roi.shape[1], roi.shape[0]))
-    mask_resized = cv2.resize(cloth_mask, (roi.shape[1], roi.shape[0]))
-    mask_normalized = cv2.merge([mask_resized, mask_resized, mask_resized]) / 255.0
-
-    blended_roi = (roi * (1 - mask_normalized) + cloth_resized * mask_normalized).astype(np.uint8)
-    frame[y1:y2, x1:x2] = blended_roi
-    return frame
+    weights = np.multiply(mask, 1.0 / 255, dtype=np.float32)
+    frame[y1:y2, x1:x2] = cv2.blendLinear(cloth, roi, weights, 1.0 - weights)
 
 try:
     while True:
         ret, frame = cap.read()
         if not ret:
-            print(json.dumps({"type": "error", "message": "Failed to capture frame"}))
+            send_message(FRAME_TYPE_ERROR, "Failed to capture frame")
             break
 
         frame = cv2.flip(frame, 1)
@@ -149,33 +187,20 @@ try:
         upper_body_rect = detect_upper_body(frame)
 
         if upper_body_rect is not None:
-            target_width = upper_body_rect[2] - upper_body_rect[0]
-            target_height = upper_body_rect[3] - upper_body_rect[1]
-            cloth_processed, cloth_mask_processed = process_cloth_image(cloth_img, target_width, target_height)
-
-            if cloth_processed is not None:
-                frame = overlay_cloth(frame, upper_body_rect, cloth_processed, cloth_mask_processed)
+            overlay_cloth(frame, upper_body_rect, cloth_levels)
 
-        # Encode frame to JPEG and base64
+        # Encode frame to JPEG and send the raw bytes
         ret, buffer = cv2.imencode('.jpg', frame, [int(cv2.IMWRITE_JPEG_QUALITY), 70])
         if not ret:
-            print(json.dumps({"type": "error", "message": "Failed to encode frame"}))
+            send_message(FRAME_TYPE_ERROR, "Failed to encode frame")
             continue
 
-        frame_base64 = base64.b64encode(buffer).decode('utf-8')
-
-        # Send frame as JSON
-        print(json.dumps({
-            "type": "frame",
-            "data": frame_base64,
-            "timestamp": time.time()
-        }))
-        sys.stdout.flush()
+        send_frame(FRAME_TYPE_JPEG, buffer.tobytes())
 
         time.sleep(0.05)
 
 except KeyboardInterrupt:
-    print(json.dumps({"type": "status", "message": "stopping"}))
+    send_message(FRAME_TYPE_STATUS, "stopping")
 finally:
     cap.release()
     cv2.destroyAllWindows()
\ No newline at end of file
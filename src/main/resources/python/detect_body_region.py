@@ -0,0 +1,51 @@
+import json
+import os
+import struct
+import sys
+
+import numpy as np
+
+sys.path.insert(0, os.path.dirname(os.path.abspath(__file__)))
+from virtual_tryon import detect_upper_body_in_image
+
+# Resident detector for the Java try-on compositor (HaarBodyRegionDetector.java).
+# Request: big-endian header (width: u32, height: u32) + width*height*3 bytes of BGR pixels.
+# Response: one JSON line, {"rect": [x1, y1, x2, y2]} or {"rect": null} or {"error": "..."}.
+REQUEST_HEADER = struct.Struct('>II')
+
+response_out = sys.stdout
+# Anything printed by libraries goes to stderr so it cannot corrupt the responses
+sys.stdout = sys.stderr
+
+def read_exactly(stream, size):
+    data = bytearray()
+    while len(data) < size:
+        chunk = stream.read(size - len(data))
+        if not chunk:
+            return None
+        data.extend(chunk)
+    return bytes(data)
+
+def respond(payload):
+    response_out.write(json.dumps(payload) + "\n")
+    response_out.flush()
+
+def main():
+    requests = sys.stdin.buffer
+    while True:
+        header = read_exactly(requests, REQUEST_HEADER.size)
+        if header is None:
+            break
+        width, height = REQUEST_HEADER.unpack(header)
+        pixels = read_exactly(requests, width * height * 3)
+        if pixels is None:
+            break
+        try:
+            image = np.frombuffer(pixels, dtype=np.uint8).reshape(height, width, 3)
+            rect = detect_upper_body_in_image(image)
+            respond({"rect": [int(v) for v in rect] if rect is not None else None})
+        except Exception as e:
+            respond({"error": str(e)})
+
+if __name__ == "__main__":
+    main()
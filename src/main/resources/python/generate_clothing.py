@@ -4,8 +4,6 @@ import time
 import logging
 from datetime import datetime
 from pathlib import Path
-from imagekitio import ImageKit
-from imagekitio.models.UploadFileRequestOptions import UploadFileRequestOptions
 
 # Configure logging
 logging.basicConfig(
@@ -18,13 +16,6 @@ logging.basicConfig(
 )
 logger = logging.getLogger('FashionAI')
 
-# Initialize ImageKit
-imagekit = ImageKit(
-    public_key='public_kFHuvOaiMWhxtEDbGKOGTBw9E9g=',
-    private_key='private_bRat8BgH2PReRgIbtw8tp1pFze4=',
-    url_endpoint='https://ik.imagekit.io/sp7ub8zm6/sp7ub8zm6'
-)
-
 def log_hardware_info():
     import psutil
     import torch
@@ -37,6 +28,33 @@ def log_hardware_info():
         logger.info(f"GPU: {torch.cuda.get_device_name(0)}")
         logger.info(f"GPU Memory: {torch.cuda.mem_get_info()[1] / (1024**3):.2f} GB")
 
+def load_pipeline():
+    from diffusers import DiffusionPipeline
+    import torch
+
+    return DiffusionPipeline.from_pretrained(
+        "CompVis/stable-diffusion-v1-4",
+        torch_dtype=torch.float16 if torch.cuda.is_available() else torch.float32,
+        safety_checker=None
+    ).to("cuda" if torch.cuda.is_available() else "cpu")
+
+def make_generator(pipe, seed):
+    """Seeded torch generator so a (prompt, seed) pair always yields the same image."""
+    import torch
+    return torch.Generator(device=pipe.device).manual_seed(int(seed))
+
+def build_prompt(prompt, gender):
+    return f"{prompt}, for a {gender}, Note:strictly no human faces or gestures are to be included."
+
+def save_image(image, prompt, output_dir):
+    Path(output_dir).mkdir(parents=True, exist_ok=True)
+    timestamp = datetime.now().strftime("%Y%m%d_%H%M%S_%f")
+    filename = f"design_{timestamp}_{abs(hash(prompt)) % 1000000}.png"
+    output_path = os.path.join(output_dir, filename)
+    image.save(output_path)
+    logger.info(f"Image saved to: {output_path}")
+    return output_path, filename
+
 def main():
     try:
         # Start timing
@@ -48,6 +66,7 @@ def main():
         style = sys.argv[2]
         gender = sys.argv[3]
         output_dir = sys.argv[4]
+        seed = int(sys.argv[5]) if len(sys.argv) > 5 else None
         logger.info(f"Prompt: '{prompt}' | Style: {style} | Gender: {gender}")
 
         # Hardware check
@@ -58,14 +77,7 @@ def main():
         logger.info("Loading Stable Diffusion pipeline...")
         load_start = time.time()
 
-        from diffusers import DiffusionPipeline
-        import torch
-
-        pipe = DiffusionPipeline.from_pretrained(
-            "CompVis/stable-diffusion-v1-4",
-            torch_dtype=torch.float16 if torch.cuda.is_available() else torch.float32,
-            safety_checker=None
-        ).to("cuda" if torch.cuda.is_available() else "cpu")
+        pipe = load_pipeline()
 
         logger.info(f"Model loaded in {time.time() - load_start:.2f}s")
         print("PROGRESS:30", flush=True)
@@ -75,51 +87,24 @@ def main():
         gen_start = time.time()
 
         # Add gender to prompt for better results
-        tempPrompt = f"{prompt}, for a {gender}, Note:strictly no human faces or gestures are to be included."
+        tempPrompt = build_prompt(prompt, gender)
 
         image = pipe(
             tempPrompt,
             num_inference_steps=25,
             height=512,
-            width=512
+            width=512,
+            generator=make_generator(pipe, seed) if seed is not None else None
         ).images[0]
 
         logger.info(f"Generation completed in {time.time() - gen_start:.2f}s")
         print("PROGRESS:70", flush=True)
 
-        # Save temporary file
-        Path(output_dir).mkdir(parents=True, exist_ok=True)
-        timestamp = datetime.now().strftime("%Y%m%d_%H%M%S")
-        filename = f"design_{timestamp}_{abs(hash(prompt)) % 1000000}.png"
-        output_path = os.path.join(output_dir, filename)
-        image.save(output_path)
-        logger.info(f"Temporary image saved to: {output_path}")
-        print("PROGRESS:80", flush=True)
-
-        # Upload to ImageKit
-        logger.info("Uploading to ImageKit...")
-        upload = imagekit.upload_file(
-            file=open(output_path, "rb"),
-            file_name=filename,
-            options=UploadFileRequestOptions(
-                folder="/fashion_designs/",
-                is_private_file=False
-            )
-        )
-
-        if upload.response_metadata.http_status_code != 200:
-            raise Exception("ImageKit upload failed")
-
-        image_url = upload.url
-        logger.info(f"Image uploaded to ImageKit: {image_url}")
+        # Java moves the file into its blob store and serves it from there
+        output_path, filename = save_image(image, prompt, output_dir)
         print("PROGRESS:95", flush=True)
 
-        # Clean up temporary file
-        os.remove(output_path)
-        logger.info(f"Temporary file removed: {output_path}")
-
-        # Return just the URL to Java
-        print(image_url, flush=True)
+        print(f"FILE:{os.path.abspath(output_path)}", flush=True)
         print("PROGRESS:100", flush=True)
 
         logger.info(f"Total execution time: {time.time() - start_time:.2f}s")
@@ -0,0 +1,152 @@
+import sys
+import os
+import json
+import time
+import queue
+import random
+import logging
+import argparse
+import threading
+
+# Frames go to the real stdout; everything else (library prints, progress bars)
+# is pushed to stderr so it can never corrupt the protocol stream.
+frame_out = os.fdopen(os.dup(sys.stdout.fileno()), 'w', buffering=1)
+sys.stdout = sys.stderr
+
+from generate_clothing import load_pipeline, build_prompt, save_image, log_hardware_info, make_generator
+
+logger = logging.getLogger('FashionAIWorker')
+
+write_lock = threading.Lock()
+
+# Ids Java has withdrawn; their queued requests are skipped and their images never saved
+cancelled = set()
+
+def send(frame):
+    with write_lock:
+        frame_out.write(json.dumps(frame) + "\n")
+        frame_out.flush()
+
+def progress(request_ids, value):
+    for request_id in request_ids:
+        send({"id": request_id, "event": "progress", "value": str(value)})
+
+def read_requests(requests):
+    # One JSON request per line on stdin; EOF means Java closed the pipe.
+    for line in sys.stdin:
+        line = line.strip()
+        if not line:
+            continue
+        try:
+            request = json.loads(line)
+        except ValueError as e:
+            logger.error(f"Malformed request frame: {line} ({e})")
+            continue
+        if "cancel" in request:
+            cancelled.add(request["cancel"])
+        else:
+            requests.put(request)
+    requests.put(None)
+
+def take(requests, timeout=None):
+    # Blocks like Queue.get but discards requests cancelled while they waited
+    while True:
+        request = requests.get(timeout=timeout)
+        if request is None or request["id"] not in cancelled:
+            return request
+        cancelled.discard(request["id"])
+        logger.info(f"Skipping cancelled request {request['id']}")
+
+def next_batch(requests, window_seconds, max_batch_size):
+    first = take(requests)
+    if first is None:
+        return None
+    batch = [first]
+    deadline = time.time() + window_seconds
+    while len(batch) < max_batch_size:
+        remaining = deadline - time.time()
+        if remaining <= 0:
+            break
+        try:
+            request = take(requests, timeout=remaining)
+        except queue.Empty:
+            break
+        if request is None:
+            requests.put(None)
+            break
+        batch.append(request)
+    return batch
+
+def run_batch(pipe, batch, steps):
+    request_ids = [request["id"] for request in batch]
+    logger.info(f"Generating batch of {len(batch)} (steps={steps}, size=512x512)")
+    progress(request_ids, 30)
+    gen_start = time.time()
+
+    def on_step_end(pipeline, step, timestep, callback_kwargs):
+        if all(request_id in cancelled for request_id in request_ids):
+            # Nobody is waiting for any image in this batch
+            pipeline._interrupt = True
+            return callback_kwargs
+        # Map diffusion steps onto the 30..70 band the single-shot script reports
+        progress(request_ids, 30 + int(40 * (step + 1) / steps))
+        return callback_kwargs
+
+    images = pipe(
+        [build_prompt(request["prompt"], request["gender"]) for request in batch],
+        num_inference_steps=steps,
+        height=512,
+        width=512,
+        generator=[make_generator(pipe, request.get("seed", random.randrange(2**32))) for request in batch],
+        callback_on_step_end=on_step_end
+    ).images
+    logger.info(f"Batch generated in {time.time() - gen_start:.2f}s")
+
+    for request, image in zip(batch, images):
+        if request["id"] in cancelled:
+            cancelled.discard(request["id"])
+            logger.info(f"Discarding image of cancelled request {request['id']}")
+            continue
+        try:
+            output_path, filename = save_image(image, request["prompt"], request["output_dir"])
+            progress([request["id"]], 95)
+            progress([request["id"]], 100)
+            # Java moves the file into its blob store and replies with the blob URL
+            send({"id": request["id"], "event": "result", "value": os.path.abspath(output_path)})
+        except Exception as e:
+            logger.error(f"Post-processing failed for {request['id']}: {str(e)}", exc_info=True)
+            send({"id": request["id"], "event": "error", "value": str(e)})
+
+def main():
+    parser = argparse.ArgumentParser(description='Resident Stable Diffusion worker')
+    parser.add_argument('--batch-window-ms', type=int, default=250)
+    parser.add_argument('--max-batch-size', type=int, default=4)
+    parser.add_argument('--steps', type=int, default=25)
+    args = parser.parse_args()
+
+    log_hardware_info()
+    load_start = time.time()
+    pipe = load_pipeline()
+    logger.info(f"Model loaded in {time.time() - load_start:.2f}s")
+    send({"event": "ready"})
+
+    requests = queue.Queue()
+    threading.Thread(target=read_requests, args=(requests,), daemon=True).start()
+
+    while True:
+        batch = next_batch(requests, args.batch_window_ms / 1000.0, args.max_batch_size)
+        if batch is None:
+            break
+        for request in batch:
+            progress([request["id"]], 10)
+        try:
+            run_batch(pipe, batch, args.steps)
+        except Exception as e:
+            logger.error(f"Batch generation failed: {str(e)}", exc_info=True)
+            for request in batch:
+                send({"id": request["id"], "event": "error", "value": str(e)})
+
+    logger.info("Request stream closed, worker exiting")
+
+if __name__ == "__main__":
+    main()
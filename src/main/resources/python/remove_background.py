@@ -1,6 +1,8 @@
+import os
 import sys
+import json
 from PIL import Image
-from rembg import remove
+from rembg import remove, new_session
 import io
 
 def remove_background(input_path, output_path):
@@ -17,11 +19,44 @@ def remove_background(input_path, output_path):
         print(f"ERROR:{str(e)}")
         sys.exit(1)
 
+def remove_background_batch():
+    # One JSON request per line on stdin ({id, input, output}); the u2net session
+    # is loaded once and reused for every image. EOF ends the batch.
+    # stdout carries only the JSON results. Whatever rembg, pooch or onnxruntime
+    # print (from Python or native code) is pushed to stderr instead.
+    results_out = os.fdopen(os.dup(sys.stdout.fileno()), 'w', buffering=1)
+    os.dup2(sys.stderr.fileno(), sys.stdout.fileno())
+    sys.stdout = sys.stderr
+    session = new_session()
+    for line in sys.stdin:
+        line = line.strip()
+        if not line:
+            continue
+        request = json.loads(line)
+        try:
+            with open(request["input"], 'rb') as f:
+                output_image = remove(Image.open(f), session=session)
+            output_image.save(request["output"], format='PNG')
+            result = {"id": request["id"], "status": "ok", "output": request["output"]}
+        except Exception as e:
+            result = {"id": request["id"], "status": "error", "error": str(e)}
+        finally:
+            try:
+                os.remove(request["input"])
+            except OSError:
+                pass
+        results_out.write(json.dumps(result) + "\n")
+        results_out.flush()
+
 if __name__ == "__main__":
+    if len(sys.argv) == 2 and sys.argv[1] == "--batch":
+        remove_background_batch()
+        sys.exit(0)
+
     if len(sys.argv) != 3:
-        print("ERROR:Usage: python remove_background.py <input_path> <output_path>")
+        print("ERROR:Usage: python remove_background.py <input_path> <output_path> | --batch")
         sys.exit(1)
 
     input_path = sys.argv[1]
     output_path = sys.argv[2]
-    remove_background(input_path, output_path)
\ No newline at end of file
+    remove_background(input_path, output_path)
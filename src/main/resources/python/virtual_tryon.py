@@ -5,28 +5,26 @@ import os
 import time
 from datetime import datetime
 import logging
-from imagekitio import ImageKit
-from imagekitio.models.UploadFileRequestOptions import UploadFileRequestOptions
 
 # Configure logging
 logging.basicConfig(level=logging.INFO)
 logger = logging.getLogger(__name__)
 
-# Initialize ImageKit
-imagekit = ImageKit(
-    private_key='private_bRat8BgH2PReRgIbtw8tp1pFze4=',
-    public_key='public_kFHuvOaiMWhxtEDbGKOGTBw9E9g=',
-    url_endpoint='https://ik.imagekit.io/sp7ub8zm6'
-)
-
 def detect_upper_body(image_path):
-    try:
-        # Load the image
-        image = cv2.imread(image_path)
-        if image is None:
-            logger.error("Error: Could not read image")
-            return None
+    # Load the image
+    image = cv2.imread(image_path)
+    if image is None:
+        logger.error("Error: Could not read image")
+        return None
 
+    upper_body_rect = detect_upper_body_in_image(image)
+    if upper_body_rect is None:
+        return None
+    return image, upper_body_rect
+
+def detect_upper_body_in_image(image):
+    """Returns the (x1, y1, x2, y2) torso rectangle for a BGR image, or None."""
+    try:
         # Convert to grayscale
         gray = cv2.cvtColor(image, cv2.COLOR_BGR2GRAY)
 
@@ -116,7 +114,7 @@ def detect_upper_body(image_path):
             logger.error("Invalid upper body dimensions")
             return None
 
-        return image, upper_body_rect
+        return upper_body_rect
     except Exception as e:
         logger.error(f"Error in detect_upper_body: {str(e)}")
         return None
@@ -216,28 +214,6 @@ def overlay_cloth(person_image, upper_body_rect, cloth_image, cloth_mask):
         logger.error(f"Error in overlay_cloth: {str(e)}")
         return None
 
-# def upload_to_imagekit(file_path):
-#     try:
-#         with open(file_path, 'rb') as file:
-#             upload_response = imagekit.upload(
-#                 file=file,
-#                 file_name=os.path.basename(file_path),
-#                 options=UploadFileRequestOptions(
-#                     folder="/virtual_tryon_results/",
-#                     is_private_file=False
-#                 )
-#             )
-#
-#             if hasattr(upload_response, 'response'):
-#                 return upload_response.response.url
-#             elif isinstance(upload_response, dict) and 'url' in upload_response:
-#                 return upload_response['url']
-#             else:
-#                 raise Exception(f"Unexpected response format: {str(upload_response)}")
-#     except Exception as e:
-#         logger.error(f"Upload error: {str(e)}")
-#         raise
-
 def main():
     if len(sys.argv) < 4:
         logger.error("ERROR: Usage: python virtual_tryon.py <user_image_path> <cloth_image_path> <output_dir>")
@@ -286,35 +262,14 @@ def main():
         # Save result
         #output_path = os.path.join(output_dir, "virtual_try_on_result.jpg")
 
-        timestamp = datetime.now().strftime("%Y%m%d_%H%M%S")
+        timestamp = datetime.now().strftime("%Y%m%d_%H%M%S_%f")
 
         filename = f"virtual_try_on_{timestamp}.jpg"
         output_path = os.path.join(output_dir, filename)
         cv2.imwrite(output_path, result_image)
 
-        # Upload to ImageKit
-        logger.info("Uploading to ImageKit...")
-        upload = imagekit.upload_file(
-        file=open(output_path, "rb"),
-        file_name=filename,
-            options=UploadFileRequestOptions(
-            folder="/virtual_tryon_results/",
-            is_private_file=False
-           )
-        )
-
-        if upload.response_metadata.http_status_code != 200:
-            raise Exception("ImageKit upload failed")
-
-        image_url = upload.url
-        logger.info(f"Image uploaded to ImageKit: {image_url}")
-
-        # Clean up temporary file
-        os.remove(output_path)
-        logger.info(f"Temporary file removed: {output_path}")
-
-        # Return just the URL to Java
-        print(image_url)
+        # Java moves the file into its blob store and serves it from there
+        print(f"FILE:{os.path.abspath(output_path)}", flush=True)
 
     except Exception as e:
         logger.error(f"ERROR_MAIN: {str(e)}")
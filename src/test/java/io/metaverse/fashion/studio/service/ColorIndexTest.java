@@ -0,0 +1,192 @@
+package io.metaverse.fashion.studio.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ColorIndexTest {
+
+    private static final int K = 10;
+
+    @Test
+    void nearestMatchesBruteForceOverLoadedTree() {
+        Random random = new Random(1);
+        Points points = Points.random(random, 5_000);
+        ColorIndex index = new ColorIndex();
+        index.load(points.ids, points.coords, points.size);
+
+        assertMatchesBruteForce(index, points, random);
+    }
+
+    @Test
+    void nearestMatchesBruteForceAcrossTreeAndPendingPoints() {
+        Random random = new Random(2);
+        Points points = Points.random(random, 3_000);
+        ColorIndex index = new ColorIndex();
+        index.load(points.ids, points.coords, 2_000);
+        for (int i = 2_000; i < points.size; i++) {
+            index.add(points.ids[i], points.coords[i * 3], points.coords[i * 3 + 1], points.coords[i * 3 + 2]);
+        }
+
+        assertEquals(points.size, index.size());
+        assertMatchesBruteForce(index, points, random);
+    }
+
+    @Test
+    void nearestMatchesBruteForceAfterPendingPointsAreMergedIntoTheTree() {
+        Random random = new Random(3);
+        int size = ColorIndex.REBUILD_THRESHOLD * 2 + 100;
+        Points points = Points.random(random, size);
+        ColorIndex index = new ColorIndex();
+        for (int i = 0; i < size; i++) {
+            index.add(points.ids[i], points.coords[i * 3], points.coords[i * 3 + 1], points.coords[i * 3 + 2]);
+        }
+
+        assertEquals(size, index.size());
+        assertMatchesBruteForce(index, points, random);
+    }
+
+    @Test
+    void queriesSeeEveryAddedPointWhileTheTreeIsRebuilt() throws InterruptedException {
+        int size = ColorIndex.REBUILD_THRESHOLD * 3;
+        ColorIndex index = new ColorIndex();
+        AtomicInteger added = new AtomicInteger();
+        AtomicReference<String> missed = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            Random random = new Random(5);
+            while (added.get() < size && missed.get() == null) {
+                int count = added.get();
+                if (count == 0) {
+                    continue;
+                }
+                // Every point has a distinct colour, so an added point is its own nearest neighbour
+                int i = random.nextInt(count);
+                long[] ids = index.nearest(i % 64, i / 64 % 64, i / 4096, 1).ids();
+                if (ids.length == 0 || ids[0] != i) {
+                    missed.set("point " + i + " of " + count);
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < size; i++) {
+            index.add(i, i % 64, i / 64 % 64, i / 4096);
+            added.incrementAndGet();
+        }
+        reader.join();
+
+        assertNull(missed.get());
+        assertEquals(size, index.size());
+    }
+
+    @Test
+    void handlesRepeatedColours() {
+        // Catalog colours are averages of whole images, so equal values on an axis are common
+        Random random = new Random(4);
+        Points points = new Points(2_000);
+        for (int i = 0; i < points.size; i++) {
+            points.ids[i] = i;
+            for (int axis = 0; axis < 3; axis++) {
+                points.coords[i * 3 + axis] = random.nextInt(4) * 64;
+            }
+        }
+        ColorIndex index = new ColorIndex();
+        index.load(points.ids, points.coords, points.size);
+
+        for (int q = 0; q < 50; q++) {
+            float r = random.nextInt(256);
+            float g = random.nextInt(256);
+            float b = random.nextInt(256);
+            assertArrayEquals(bruteForceDistances(points, r, g, b, K), index.nearest(r, g, b, K).distances());
+        }
+    }
+
+    @Test
+    void returnsFewerResultsThanKWhenTheIndexIsSmaller() {
+        ColorIndex index = new ColorIndex();
+        index.load(new long[]{7, 8}, new float[]{0, 0, 0, 255, 255, 255}, 2);
+        index.add(9, 10, 10, 10);
+
+        ColorIndex.Result result = index.nearest(0, 0, 0, K);
+
+        assertArrayEquals(new long[]{7, 9, 8}, result.ids());
+        assertEquals(0f, result.distances()[0]);
+        assertEquals((float) Math.sqrt(300), result.distances()[1]);
+    }
+
+    @Test
+    void emptyIndexHasNoResults() {
+        assertEquals(0, new ColorIndex().nearest(1, 2, 3, K).ids().length);
+    }
+
+    private static void assertMatchesBruteForce(ColorIndex index, Points points, Random random) {
+        for (int q = 0; q < 200; q++) {
+            float r = random.nextFloat() * 255;
+            float g = random.nextFloat() * 255;
+            float b = random.nextFloat() * 255;
+            ColorIndex.Result result = index.nearest(r, g, b, K);
+
+            Integer[] expected = bruteForce(points, r, g, b);
+            long[] expectedIds = new long[K];
+            for (int i = 0; i < K; i++) {
+                expectedIds[i] = points.ids[expected[i]];
+            }
+            assertArrayEquals(expectedIds, result.ids(), () -> "query " + r + "," + g + "," + b);
+            assertArrayEquals(bruteForceDistances(points, r, g, b, K), result.distances());
+        }
+    }
+
+    private static Integer[] bruteForce(Points points, float r, float g, float b) {
+        Integer[] order = IntStream.range(0, points.size).boxed().toArray(Integer[]::new);
+        Arrays.sort(order, Comparator.comparingDouble(i -> distanceSquared(points, i, r, g, b)));
+        return order;
+    }
+
+    private static float[] bruteForceDistances(Points points, float r, float g, float b, int k) {
+        Integer[] order = bruteForce(points, r, g, b);
+        float[] distances = new float[Math.min(k, points.size)];
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = (float) Math.sqrt(distanceSquared(points, order[i], r, g, b));
+        }
+        return distances;
+    }
+
+    private static float distanceSquared(Points points, int i, float r, float g, float b) {
+        float dr = points.coords[i * 3] - r;
+        float dg = points.coords[i * 3 + 1] - g;
+        float db = points.coords[i * 3 + 2] - b;
+        return dr * dr + dg * dg + db * db;
+    }
+
+    private static final class Points {
+        private final long[] ids;
+        private final float[] coords;
+        private final int size;
+
+        private Points(int size) {
+            this.ids = new long[size];
+            this.coords = new float[size * 3];
+            this.size = size;
+        }
+
+        static Points random(Random random, int size) {
+            Points points = new Points(size);
+            for (int i = 0; i < size; i++) {
+                points.ids[i] = 1_000 + i;
+                for (int axis = 0; axis < 3; axis++) {
+                    points.coords[i * 3 + axis] = random.nextFloat() * 255;
+                }
+            }
+            return points;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package io.metaverse.fashion.studio.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OutfitClassifierTest {
+
+    private static final float ROOT_THIRD = (float) (1 / Math.sqrt(3));
+
+    @Test
+    void murmur3MatchesReferenceVectors() {
+        // MurmurHash3_x86_32, seed 0, as returned by sklearn.utils.murmurhash3_32 and mmh3.hash
+        assertEquals(0, murmur3(""));
+        assertEquals(613153351, murmur3("hello"));
+        assertEquals(-156908512, murmur3("foo"));
+        assertEquals(0x2e4ff723, murmur3("The quick brown fox jumps over the lazy dog"));
+    }
+
+    @Test
+    void hashUsesSklearnBucketIndices() {
+        // HashingVectorizer(n_features=2**18, alternate_sign=False) puts a term at abs(murmur3) % n_features
+        assertEquals(Map.of(260679, 1f), OutfitClassifier.hash("hello"));
+        assertEquals(Map.of(146400, 1f), OutfitClassifier.hash("foo"));
+        assertEquals(Map.of(3848, 1f), OutfitClassifier.hash("Café"));
+    }
+
+    @Test
+    void hashDropsStopWordsBeforeBuildingBigramsAndNormalises() {
+        // "at" and "the" are stop words, so the only bigram is "wedding beach"
+        assertEquals(Map.of(218610, ROOT_THIRD, 191570, ROOT_THIRD, 45531, ROOT_THIRD),
+                OutfitClassifier.hash("Wedding at the beach"));
+        // Counts are l2 normalised: hello x2, "hello hello" x1
+        assertEquals(Map.of(260679, (float) (2 / Math.sqrt(5)), 248644, (float) (1 / Math.sqrt(5))),
+                OutfitClassifier.hash("hello hello"));
+        // Single characters are not tokens
+        assertEquals(Map.of(), OutfitClassifier.hash("a b c"));
+    }
+
+    @Test
+    void predictsTheOutfitOfTrainingOccasions(@TempDir Path dir) throws IOException {
+        Path dataset = dir.resolve("outfits.csv");
+        StringBuilder csv = new StringBuilder("occasion_text,outfit,gender\n");
+        for (int i = 0; i < 20; i++) {
+            csv.append("beach party,Linen shirt with shorts,male\n");
+            csv.append("job interview,Navy suit with tie,male\n");
+            csv.append("rainy day,Raincoat with boots,female\n");
+        }
+        Files.writeString(dataset, csv, StandardCharsets.UTF_8);
+
+        OutfitClassifier classifier = new OutfitClassifier();
+        ReflectionTestUtils.setField(classifier, "datasetPath", dataset.toString());
+        ReflectionTestUtils.setField(classifier, "epochs", 15);
+        ReflectionTestUtils.setField(classifier, "learningRate", 0.5f);
+        classifier.train();
+
+        assertEquals("Linen shirt with shorts", classifier.predict("beach party", "male"));
+        assertEquals("Navy suit with tie", classifier.predict("Job interview", "male"));
+        assertEquals("Raincoat with boots", classifier.predict("a rainy day", "female"));
+    }
+
+    private static int murmur3(String text) {
+        return OutfitClassifier.murmur3(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,126 @@
+package io.metaverse.fashion.studio.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptIndexTest {
+
+    private static final String PARTITION = "casual\nmale";
+
+    @Test
+    void wordsIgnoreOrderCasePunctuationAndFillerWords() {
+        assertArrayEquals(new String[]{"casual", "red", "shirt"}, PromptIndex.words("a red casual shirt"));
+        assertArrayEquals(PromptIndex.words("a red casual shirt"), PromptIndex.words("Casual shirt, RED!"));
+        assertArrayEquals(new String[0], PromptIndex.words("please make me a design"));
+        assertArrayEquals(new String[0], PromptIndex.words(null));
+    }
+
+    @Test
+    void jaccardMatchesSetComputation() {
+        Random random = new Random(1);
+        for (int i = 0; i < 1_000; i++) {
+            Set<String> a = randomWords(random, 1 + random.nextInt(10), 20);
+            Set<String> b = randomWords(random, 1 + random.nextInt(10), 20);
+            Set<String> union = new HashSet<>(a);
+            union.addAll(b);
+            Set<String> intersection = new HashSet<>(a);
+            intersection.retainAll(b);
+
+            assertEquals((double) intersection.size() / union.size(),
+                    PromptIndex.jaccard(PromptIndex.words(String.join(" ", a)), PromptIndex.words(String.join(" ", b))));
+        }
+    }
+
+    @Test
+    void findsRewordedPromptInTheSamePartitionOnly() {
+        PromptIndex index = new PromptIndex();
+        index.add(1, PARTITION, "a red casual cotton shirt with short sleeves");
+
+        Optional<PromptIndex.Match> match = index.findSimilar(PARTITION, "Short sleeves, cotton shirt: casual and red", 0.8);
+        assertTrue(match.isPresent());
+        assertEquals(1, match.get().id());
+        assertEquals(1.0, match.get().similarity());
+
+        assertTrue(index.findSimilar("formal\nmale", "a red casual cotton shirt with short sleeves", 0.8).isEmpty());
+        assertTrue(index.findSimilar(PARTITION, "a blue denim jacket with a hood", 0.8).isEmpty());
+    }
+
+    @Test
+    void newestEntryWinsTies() {
+        PromptIndex index = new PromptIndex();
+        index.add(3, PARTITION, "red cotton shirt");
+        index.add(9, PARTITION, "shirt cotton red");
+        index.add(5, PARTITION, "red shirt of cotton");
+
+        assertEquals(9, index.findSimilar(PARTITION, "red cotton shirt", 0.8).orElseThrow().id());
+    }
+
+    @Test
+    void promptsWithoutMeaningfulWordsAreNotIndexed() {
+        PromptIndex index = new PromptIndex();
+        index.add(1, PARTITION, "make me a design please");
+
+        assertEquals(0, index.size());
+        assertTrue(index.findSimilar(PARTITION, "make me a design please", 0.0).isEmpty());
+    }
+
+    @Test
+    void findSimilarMatchesBruteForceForNearDuplicates() {
+        Random random = new Random(2);
+        PromptIndex index = new PromptIndex();
+        List<String[]> prompts = new ArrayList<>();
+        for (int id = 0; id < 2_000; id++) {
+            String[] words = PromptIndex.words(String.join(" ", randomWords(random, 8, 500)));
+            prompts.add(words);
+            index.add(id, PARTITION, String.join(" ", words));
+        }
+
+        double threshold = 0.8;
+        int found = 0;
+        for (int q = 0; q < 500; q++) {
+            // Drop one word from an indexed prompt, giving a Jaccard similarity of 7/8 with it
+            String[] source = prompts.get(random.nextInt(prompts.size()));
+            List<String> query = new ArrayList<>(List.of(source));
+            query.remove(random.nextInt(query.size()));
+            String[] queryWords = PromptIndex.words(String.join(" ", query));
+
+            long bestId = -1;
+            double best = 0;
+            for (int id = 0; id < prompts.size(); id++) {
+                double similarity = PromptIndex.jaccard(queryWords, prompts.get(id));
+                if (similarity >= threshold && (similarity > best || (similarity == best && id > bestId))) {
+                    best = similarity;
+                    bestId = id;
+                }
+            }
+
+            Optional<PromptIndex.Match> match = index.findSimilar(PARTITION, String.join(" ", query), threshold);
+            // LSH may in principle miss a candidate, but never reports one below the threshold
+            match.ifPresent(m -> assertTrue(m.similarity() >= threshold));
+            if (match.isPresent() && match.get().id() == bestId) {
+                assertEquals(best, match.get().similarity());
+                found++;
+            }
+        }
+        // 16 bands of 4 rows find a pair at similarity 0.875 with probability > 0.9999
+        assertEquals(500, found);
+    }
+
+    private static Set<String> randomWords(Random random, int count, int vocabulary) {
+        Set<String> words = new HashSet<>();
+        while (words.size() < count) {
+            words.add("w" + random.nextInt(vocabulary));
+        }
+        return words;
+    }
+}